@@ -0,0 +1,55 @@
+package searchengine.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import searchengine.entities.Page;
+import searchengine.entities.Site;
+import searchengine.services.utils.TextExtractor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Russian and English HTML pages bundled with the benchmarks, turned
+ * into pages the way the crawler saves them.
+ */
+public class Corpus {
+
+    public static final String RU_NEWS = "ru-news.html";
+    public static final String RU_SHOP = "ru-shop.html";
+    public static final String EN_ARTICLE = "en-article.html";
+    public static final String EN_DOCS = "en-docs.html";
+    public static final String[] FILES = {RU_NEWS, RU_SHOP, EN_ARTICLE, EN_DOCS};
+
+    private static final String DIRECTORY = "/corpus/";
+
+    public static String read(String file) {
+        try (InputStream in = Corpus.class.getResourceAsStream(DIRECTORY + file)) {
+            if (in == null) {
+                throw new IllegalArgumentException(file + " is not in the corpus");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Site createSite() {
+        Site site = new Site("https://example.com");
+        site.setId(1);
+        site.setName("Example");
+        return site;
+    }
+
+    public static Page createPage(Site site, int id, String html) {
+        Document document = Jsoup.parse(html);
+        Page page = new Page(site, "/pages/" + id);
+        page.setId(id);
+        page.setCode(200);
+        page.setContent(html);
+        page.setTitle(document.title());
+        page.setText(TextExtractor.extractText(document.body()));
+        return page;
+    }
+}
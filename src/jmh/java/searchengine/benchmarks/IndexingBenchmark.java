@@ -0,0 +1,45 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.entities.Page;
+import searchengine.models.PageIndexes;
+import searchengine.services.tasks.IndexingPagesTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index building of one saved page: lemmas, ranks, token positions
+ * and the forward index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexingBenchmark {
+
+    @Param({Corpus.RU_NEWS, Corpus.RU_SHOP, Corpus.EN_ARTICLE, Corpus.EN_DOCS})
+    private String file;
+
+    private Page page;
+
+    @Setup
+    public void setUp() {
+        page = Corpus.createPage(Corpus.createSite(), 1, Corpus.read(file));
+    }
+
+    @Benchmark
+    public PageIndexes buildIndexes() {
+        return IndexingPagesTask.buildIndexes(page);
+    }
+}
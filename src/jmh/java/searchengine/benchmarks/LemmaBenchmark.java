@@ -0,0 +1,68 @@
+package searchengine.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.models.Meaning;
+import searchengine.models.TokenLemma;
+import searchengine.services.utils.LemmaProcessor;
+import searchengine.services.utils.TextExtractor;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lemmatization of page text with the word lemma caches filled by the
+ * warmup (warm) and emptied before every call (cold), and of a query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LemmaBenchmark {
+
+    @Param({Corpus.RU_NEWS, Corpus.RU_SHOP, Corpus.EN_ARTICLE, Corpus.EN_DOCS})
+    private String file;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = TextExtractor.extractText(Jsoup.parse(Corpus.read(file)).body());
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCaches {
+        @Setup(Level.Invocation)
+        public void clear() {
+            LemmaProcessor.getCache(false).invalidateAll();
+            LemmaProcessor.getCache(true).invalidateAll();
+        }
+    }
+
+    @Benchmark
+    public List<TokenLemma> tokenLemmasWarm() {
+        return LemmaProcessor.getTokenLemmas(text);
+    }
+
+    @Benchmark
+    public List<TokenLemma> tokenLemmasCold(ColdCaches caches) {
+        return LemmaProcessor.getTokenLemmas(text);
+    }
+
+    @Benchmark
+    public List<Meaning> lemmasWithTransformations() {
+        return LemmaProcessor.getLemmas(text, true);
+    }
+}
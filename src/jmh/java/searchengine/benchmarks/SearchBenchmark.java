@@ -0,0 +1,113 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.entities.Page;
+import searchengine.entities.Site;
+import searchengine.models.Meaning;
+import searchengine.models.PageIndexes;
+import searchengine.services.index.InvertedIndex;
+import searchengine.services.index.Ranking;
+import searchengine.services.tasks.IndexingPagesTask;
+import searchengine.services.utils.LemmaProcessor;
+import searchengine.services.utils.SnippetBuilder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snippet building with and without the forward index, and in-memory
+ * search: query lemmatization, ranking over the inverted index and the
+ * snippets of the first result page. The corpus is repeated to the
+ * given number of pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int RESULT_PAGE_SIZE = 10;
+
+    @Param({"1000"})
+    private int pageCount;
+
+    @Param({"обновлённый парк в центре города", "search engine index pages"})
+    private String query;
+
+    private final Map<Integer, Page> pages = new HashMap<>();
+    private InvertedIndex invertedIndex;
+    private Site site;
+    private Page indexedPage;
+    private Page plainPage;
+    private List<Meaning> words;
+    private List<Meaning> lemmas;
+
+    @Setup
+    public void setUp() {
+        site = Corpus.createSite();
+        invertedIndex = new InvertedIndex(null, null);
+        for (int id = 1; id <= pageCount; id++) {
+            Page page = Corpus.createPage(site, id, Corpus.read(Corpus.FILES[id % Corpus.FILES.length]));
+            PageIndexes pageIndexes = IndexingPagesTask.buildIndexes(page);
+            invertedIndex.addPage(site.getId(), site.getGeneration(), id, pageIndexes.ranks());
+            pages.put(id, page);
+        }
+        words = LemmaProcessor.getLemmas(query, true);
+        lemmas = LemmaProcessor.getLemmas(query, false);
+        Ranking ranking = invertedIndex.rank(getLemmaWords(), site.getId(), 1);
+        indexedPage = pages.get(ranking.size() > 0 ? ranking.getPageId(0) : 1);
+        plainPage = Corpus.createPage(site, 0, indexedPage.getContent());
+    }
+
+    @Benchmark
+    public String snippetFromForwardIndex() {
+        return SnippetBuilder.getSnippet(indexedPage, words, lemmas);
+    }
+
+    @Benchmark
+    public String snippetFromText() {
+        return SnippetBuilder.getSnippet(plainPage, words, lemmas);
+    }
+
+    @Benchmark
+    public Ranking rank() {
+        return invertedIndex.rank(getLemmaWords(), null, RESULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) {
+        List<Meaning> queryWords = LemmaProcessor.getLemmas(query, true);
+        List<Meaning> queryLemmas = LemmaProcessor.getLemmas(query, false);
+        Ranking ranking = invertedIndex.rank(
+                queryLemmas.stream()
+                        .map(Meaning::word)
+                        .toList(),
+                null,
+                RESULT_PAGE_SIZE
+        );
+        for (int i = 0; i < ranking.size(); i++) {
+            blackhole.consume(SnippetBuilder.getSnippet(
+                    pages.get(ranking.getPageId(i)), queryWords, queryLemmas));
+        }
+    }
+
+    private List<String> getLemmaWords() {
+        return lemmas.stream()
+                .map(Meaning::word)
+                .toList();
+    }
+}
@@ -0,0 +1,69 @@
+package searchengine.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.enums.Patterns;
+import searchengine.services.utils.TextExtractor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Text extraction from HTML, tokenization of the text blocks and
+ * trimming of snippet parts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextBenchmark {
+
+    private static final Pattern WORD = Patterns.WORD.getRedexPattern();
+
+    @Param({Corpus.RU_NEWS, Corpus.RU_SHOP, Corpus.EN_ARTICLE, Corpus.EN_DOCS})
+    private String file;
+
+    private String html;
+    private String[] blocks;
+
+    @Setup
+    public void setUp() {
+        html = Corpus.read(file);
+        blocks = TextExtractor.extractText(Jsoup.parse(html).body())
+                .split(Patterns.TEXT_BLOCK_SEPARATOR.getStringValue());
+    }
+
+    @Benchmark
+    public String extractText() {
+        return TextExtractor.extractText(Jsoup.parse(html).body());
+    }
+
+    @Benchmark
+    public int tokenize() {
+        int tokens = 0;
+        for (String block : blocks) {
+            tokens += (int) WORD.matcher(block).results().count();
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public int trimStrings() {
+        int length = 0;
+        for (String block : blocks) {
+            length += Patterns.MIDDLE_STRING_PART.getStringValue(block).length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "content-store")
+public class ContentStoreSettings {
+    private boolean enabled = true;
+    private String directory = "content-store";
+    private int segmentSize = 1 << 28;
+}
@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawl-settings")
+public class CrawlSettings {
+    private boolean virtualThreads = false;
+    private int maxConcurrentFetches = 200;
+    private double hostRate = 5;
+    private int hostBurst = 1;
+    private boolean respectCrawlDelay = true;
+    private boolean incremental = false;
+    private int frontierMemoryCapacity = 100000;
+    private String checkpointFile = "crawl-checkpoint.bin";
+    private int checkpointInterval = 60000;
+}
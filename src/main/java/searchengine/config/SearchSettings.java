@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    private float maxLemmaPageShare = 0.8f;
+    private int rankingDepth = 100;
+    private long rankingCacheBytes = 16 * 1024 * 1024;
+    private int threads = 4;
+    private int queueCapacity = 100;
+    private int deadline = 1000;
+    private int proximityWindow = 200;
+    private int phraseWindow = 1000;
+    private float proximityWeight = 0.5f;
+}
@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "writer-settings")
+public class WriterSettings {
+    private int batchSize = 100;
+    private int flushInterval = 500;
+    private int queueCapacity = 1000;
+    private int threads = 1;
+}
@@ -42,6 +42,17 @@ public class ApiController {
                 .body(Messages.FAILED_STOP.getMessage());
     }
 
+    @GetMapping("/resumeIndexing")
+    public ResponseEntity<?> resumeIndexing() {
+        if (indexingService.resumeIndexing()) {
+            return ResponseEntity
+                    .ok(Messages.SUCCESS.getMessage());
+        }
+        return ResponseEntity
+                .badRequest()
+                .body(Messages.FAILED_RESUME.getMessage());
+    }
+
     @PostMapping(path = "/indexPage",
             consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE})
     public ResponseEntity<?> indexPage(PageUrl page) {
@@ -4,6 +4,7 @@ import jakarta.annotation.Nonnull;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -27,13 +28,16 @@ public class Index implements Comparable<Index> {
     private Integer id;
     @JoinColumn(name = "page_id",
             nullable = false)
-    @ManyToOne(cascade = CascadeType.MERGE)
+    @ManyToOne(fetch = FetchType.LAZY,
+            cascade = CascadeType.MERGE)
     private Page page;
     @Column(nullable = false)
     private String lemma;
     @Column(name = "lemma_rank",
             nullable = false)
     private Float rank;
+    @Column(name = "lemma_positions")
+    private byte[] positions;
 
     public Index(@Nonnull Page page,
                  @Nonnull String lemma,
@@ -43,6 +47,14 @@ public class Index implements Comparable<Index> {
         this.rank = rank;
     }
 
+    public Index(@Nonnull Page page,
+                 @Nonnull String lemma,
+                 @Nonnull Float rank,
+                 byte[] positions) {
+        this(page, lemma, rank);
+        this.positions = positions;
+    }
+
     public int getPageId() {
         return page.getId();
     }
@@ -0,0 +1,58 @@
+package searchengine.entities;
+
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "lemmas")
+public class Lemma {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    @JoinColumn(name = "site_id",
+            nullable = false)
+    @ManyToOne
+    private Site site;
+    @Column(nullable = false)
+    private String lemma;
+    @Column(nullable = false)
+    private Integer frequency;
+    @Column(nullable = false)
+    private int generation;
+
+    public Lemma(@Nonnull Site site,
+                 @Nonnull String lemma,
+                 @Nonnull Integer frequency) {
+        this.site = site;
+        this.lemma = lemma;
+        this.frequency = frequency;
+    }
+
+    @Override
+    public int hashCode() {
+        return (site.getUrl() + lemma).hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!o.getClass().equals(Lemma.class)) {
+            return false;
+        }
+        Lemma l = (Lemma) o;
+        return site.equals(l.site) &&
+                lemma.equals(l.lemma);
+    }
+}
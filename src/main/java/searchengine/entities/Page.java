@@ -10,6 +10,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -28,19 +29,52 @@ public class Page {
     @ManyToOne(cascade = CascadeType.MERGE)
     private Site site;
     @Column(name = "page_path",
-            unique = true,
             nullable = false)
     private String path;
     @Column(nullable = false)
     private Integer code;
     @Column(name = "page_content",
-            nullable = false)
+            insertable = false,
+            updatable = false)
     private String content;
+    @Column(name = "page_title")
+    private String title;
+    @Column(name = "page_text",
+            insertable = false,
+            updatable = false)
+    private String text;
+    @Column(name = "content_offset")
+    private Long contentOffset;
+    @Column(name = "page_forward_index")
+    private byte[] forwardIndex;
+    private String etag;
+    @Column(name = "last_modified")
+    private String lastModified;
+    @Column(name = "content_hash")
+    private String contentHash;
+    @Column(nullable = false)
+    private int generation;
+    @Transient
+    private Page replaced;
 
     public Page(@Nonnull Site site,
                 @Nonnull String path) {
         this.site = site;
         this.path = path;
+        this.generation = site.getCrawlGeneration();
+    }
+
+    public Page(Integer id, Site site, String path, String title, String content, String text,
+                Long contentOffset, byte[] forwardIndex, int generation) {
+        this.id = id;
+        this.site = site;
+        this.path = path;
+        this.title = title;
+        this.content = content;
+        this.text = text;
+        this.contentOffset = contentOffset;
+        this.forwardIndex = forwardIndex;
+        this.generation = generation;
     }
 
     public int getSiteId() {
@@ -41,6 +41,11 @@ public class Site {
             unique = true,
             nullable = false)
     private String name;
+    @Column(nullable = false)
+    private int generation;
+    @Column(name = "crawl_generation",
+            nullable = false)
+    private int crawlGeneration;
 
     public Site(@Nonnull String url) {
         this.url = url;
@@ -64,4 +69,11 @@ public class Site {
     public String getStatus() {
         return status.name();
     }
+
+    /**
+     * Returns true while a full crawl builds a new generation.
+     */
+    public boolean isRebuilding() {
+        return crawlGeneration != generation;
+    }
 }
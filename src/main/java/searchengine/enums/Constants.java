@@ -4,6 +4,9 @@ import lombok.Getter;
 
 @Getter
 public enum Constants {
+    INDEX_LOADING_BATCH_SIZE(10000),
+    INDEX_LOADING_RETRY_MS(30000),
+    LEMMA_CACHE_SIZE(200000),
     MOST_RELEVANT_INDEXES_COUNT_LIMIT(100),
     TIMEOUT_150_MS(150),
     TIMEOUT_1000_MS(1000),
@@ -10,6 +10,7 @@ public enum Messages {
             "указанных в конфигурационном файле"),
     FAILED_SEARCH("Задан пустой поисковый запрос"),
     FAILED_START("Индексация уже запущена"),
+    FAILED_RESUME("Нет прерванной индексации"),
     FAILED_STOP("Индексация не запущена");
 
     private final String message;
@@ -22,7 +23,7 @@ public enum Messages {
         return switch (this) {
             case SUCCESS -> new Message(true);
             case FAILED_PAGE_INDEX, FAILED_SEARCH, FAILED_START,
-                    FAILED_STOP -> new ErrorMessage(message);
+                    FAILED_RESUME, FAILED_STOP -> new ErrorMessage(message);
             default -> new Message(false);
         };
     }
@@ -1,6 +1,6 @@
 package searchengine.enums;
 
-import java.util.Arrays;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public enum Patterns {
@@ -21,12 +21,17 @@ public enum Patterns {
     MIDDLE_STRING_PART(""),
     NOT_RELEVANT_PAGE_PATH("/.*[?,:].*"),
     ONE_SPACE(" "),
+    QUOTED_PHRASE("\"([^\"]+)\""),
     REMOVE_PUNCTUATION_MARKS("[\\.\\?!,:;]+"),
     ROOT_PATH("/"),
     SAMPLE("%s"),
     STRING_SPLITTER("(?<=[\\.\\?!] )"),
+    TEXT_BLOCK_SEPARATOR("\n"),
     WORD("\\w+");
 
+    private static final Set<String> TEXT_TAG_NAMES =
+            Set.of(HTML_TEXT_TAG_NAMES.pattern.split(COMA.pattern));
+
     private final String pattern;
 
     Patterns(String pattern) {
@@ -70,8 +75,7 @@ public enum Patterns {
     public boolean isMatches(String string) {
         return switch (this) {
             case HTML_TEXT_TAG_NAMES ->
-                Arrays.asList(pattern.split(COMA.pattern))
-                        .contains(string);
+                TEXT_TAG_NAMES.contains(string);
             case NOT_RELEVANT_PAGE_PATH,
                     CONTAINS_RUSSIAN_LETTERS,
                     CONTAINS_ENGLISH_LETTERS ->
@@ -0,0 +1,6 @@
+package searchengine.models;
+
+public interface IdRange {
+    Integer getMinId();
+    Integer getMaxId();
+}
@@ -0,0 +1,7 @@
+package searchengine.models;
+
+public interface IndexCandidate {
+    int getPageId();
+    int getSiteId();
+    float getLemmaRank();
+}
@@ -0,0 +1,10 @@
+package searchengine.models;
+
+public interface IndexEntry {
+    int getId();
+    int getPageId();
+    int getSiteId();
+    int getGeneration();
+    String getLemma();
+    float getLemmaRank();
+}
@@ -0,0 +1,13 @@
+package searchengine.models;
+
+import searchengine.entities.Page;
+import java.util.Map;
+
+/**
+ * Lemma ranks of a page and the token ordinals of every lemma,
+ * delta-encoded.
+ */
+public record PageIndexes(Page page,
+                          Map<String, Float> ranks,
+                          Map<String, byte[]> positions) {
+}
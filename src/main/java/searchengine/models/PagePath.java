@@ -0,0 +1,6 @@
+package searchengine.models;
+
+public interface PagePath {
+    int getId();
+    String getPath();
+}
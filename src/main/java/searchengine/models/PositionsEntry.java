@@ -0,0 +1,7 @@
+package searchengine.models;
+
+public interface PositionsEntry {
+    int getPageId();
+    String getLemma();
+    byte[] getPositions();
+}
@@ -21,11 +21,4 @@ public class SearchResults {
         this.count = count;
         this.data = data;
     }
-
-    public SearchResults getPagedResults(int offset, int limit) {
-        return new SearchResults(
-                data.stream().skip(offset).limit(limit).toList(),
-                count
-        );
-    }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package searchengine.models;
+
+public interface SiteCounts {
+    int getSiteId();
+    int getGeneration();
+    int getPages();
+    int getLemmas();
+}
@@ -0,0 +1,9 @@
+package searchengine.models;
+
+public record TokenLemma(String lemma,
+                         int start,
+                         int end) {
+    public TokenLemma shift(int offset) {
+        return new TokenLemma(lemma, start + offset, end + offset);
+    }
+}
@@ -7,6 +7,8 @@ public record DetailedStatisticsItem(
         long statusTime,
         String error,
         int pages,
-        int lemmas
+        int lemmas,
+        boolean purging,
+        long purgedRows
 ) {
 }
@@ -5,38 +5,83 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.entities.Index;
-import searchengine.entities.Page;
 import searchengine.entities.Site;
+import searchengine.models.IdRange;
+import searchengine.models.IndexCandidate;
+import searchengine.models.IndexEntry;
+import searchengine.models.PositionsEntry;
+import java.util.Collection;
 import java.util.List;
 
-public interface IndexRepository extends JpaRepository<Index, Integer> {
+public interface IndexRepository extends JpaRepository<Index, Integer>, IndexRepositoryCustom {
 
-    @Query(value = "SELECT * FROM indexes WHERE lemma=:#{#lemma} " +
-            "GROUP BY page_id ORDER BY lemma_rank DESC LIMIT :#{#limit}",
+    @Query(value = "SELECT i.page_id AS pageId, p.site_id AS siteId, SUM(i.lemma_rank) AS lemmaRank " +
+            "FROM indexes i JOIN pages p ON p.id = i.page_id " +
+            "JOIN sites s ON s.id = p.site_id AND s.generation = p.generation " +
+            "WHERE i.lemma IN :#{#lemmas} GROUP BY i.page_id, p.site_id " +
+            "HAVING COUNT(*) = :#{#lemmas.size()} ORDER BY lemmaRank DESC LIMIT :#{#limit}",
             nativeQuery = true)
-    List<Index> findByLemmaOrderByRankDescLimit(String lemma, int limit);
+    List<IndexCandidate> findCandidatesByLemmas(Collection<String> lemmas, int limit);
 
-    @Query(value = "SELECT * FROM indexes WHERE lemma=:#{#lemma} AND page_id IN " +
-            "(SELECT p.id FROM pages p WHERE p.site_id=:#{#site.id}) " +
-            "GROUP BY page_id ORDER BY lemma_rank DESC LIMIT :#{#limit}",
+    @Query(value = "SELECT i.page_id AS pageId, p.site_id AS siteId, SUM(i.lemma_rank) AS lemmaRank " +
+            "FROM indexes i JOIN pages p ON p.id = i.page_id " +
+            "WHERE i.lemma IN :#{#lemmas} AND p.site_id=:#{#site.id} " +
+            "AND p.generation=:#{#site.generation} GROUP BY i.page_id, p.site_id " +
+            "HAVING COUNT(*) = :#{#lemmas.size()} ORDER BY lemmaRank DESC LIMIT :#{#limit}",
             nativeQuery = true)
-    List<Index> findByLemmaAndSiteOrderByRankDescLimit(String lemma, Site site, int limit);
+    List<IndexCandidate> findCandidatesByLemmasAndSite(Collection<String> lemmas, Site site, int limit);
 
-    @Query(value = "SELECT COUNT(DISTINCT(lemma)) FROM indexes",
+    @Query(value = "SELECT COUNT(*) FROM (SELECT i.page_id FROM indexes i " +
+            "JOIN pages p ON p.id = i.page_id " +
+            "JOIN sites s ON s.id = p.site_id AND s.generation = p.generation " +
+            "WHERE i.lemma IN :#{#lemmas} GROUP BY i.page_id " +
+            "HAVING COUNT(*) = :#{#lemmas.size()}) matches",
             nativeQuery = true)
-    long countDistinctLemma();
+    int countCandidatesByLemmas(Collection<String> lemmas);
 
-    @Query(value = "SELECT COUNT(DISTINCT lemma) FROM indexes WHERE page_id IN " +
-            "(SELECT id FROM pages WHERE site_id=:#{#site.id})",
+    @Query(value = "SELECT COUNT(*) FROM (SELECT i.page_id FROM indexes i " +
+            "JOIN pages p ON p.id = i.page_id " +
+            "WHERE i.lemma IN :#{#lemmas} AND p.site_id=:#{#site.id} " +
+            "AND p.generation=:#{#site.generation} GROUP BY i.page_id " +
+            "HAVING COUNT(*) = :#{#lemmas.size()}) matches",
             nativeQuery = true)
-    long lemmaCountBySite(Site site);
+    int countCandidatesByLemmasAndSite(Collection<String> lemmas, Site site);
+
+    @Query(value = "SELECT MIN(i.id) AS minId, MAX(i.id) AS maxId FROM indexes i " +
+            "JOIN pages p ON p.id = i.page_id " +
+            "WHERE p.site_id=:#{#site.id} AND p.generation=:#{#generation}",
+            nativeQuery = true)
+    IdRange findIdRangeBySiteAndGeneration(Site site, int generation);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE i FROM indexes i JOIN pages p ON p.id = i.page_id " +
+            "WHERE i.id BETWEEN :#{#fromId} AND :#{#toId} " +
+            "AND p.site_id=:#{#site.id} AND p.generation=:#{#generation}",
+            nativeQuery = true)
+    int deleteBySiteAndGenerationAndIdBetween(Site site, int generation, int fromId, int toId);
 
     @Transactional
     @Modifying
-    @Query(value = "DELETE FROM indexes WHERE page_id IN " +
-            "(SELECT id FROM pages WHERE site_id=:#{#site.id})",
+    @Query(value = "DELETE FROM indexes WHERE page_id=:#{#pageId}",
             nativeQuery = true)
-    void deleteOldIndexesBySite(Site site);
+    void deleteAllByPageId(int pageId);
 
-    List<Index> findAllByPage(Page page);
+    @Query(value = "SELECT lemma FROM indexes WHERE page_id=:#{#pageId}",
+            nativeQuery = true)
+    List<String> findLemmasByPageId(int pageId);
+
+    @Query(value = "SELECT i.id AS id, i.page_id AS pageId, p.site_id AS siteId, " +
+            "p.generation AS generation, i.lemma AS lemma, i.lemma_rank AS lemmaRank " +
+            "FROM indexes i JOIN pages p ON p.id = i.page_id " +
+            "JOIN sites s ON s.id = p.site_id " +
+            "AND p.generation IN (s.generation, s.crawl_generation) " +
+            "WHERE i.id > :#{#lastId} ORDER BY i.id LIMIT :#{#limit}",
+            nativeQuery = true)
+    List<IndexEntry> findEntriesAfterId(int lastId, int limit);
+
+    @Query(value = "SELECT page_id AS pageId, lemma AS lemma, lemma_positions AS positions " +
+            "FROM indexes WHERE page_id IN :#{#pageIds} AND lemma IN :#{#lemmas}",
+            nativeQuery = true)
+    List<PositionsEntry> findPositions(Collection<Integer> pageIds, Collection<String> lemmas);
 }
@@ -0,0 +1,9 @@
+package searchengine.repositories;
+
+import searchengine.entities.Index;
+import java.util.List;
+
+public interface IndexRepositoryCustom {
+
+    void insertAll(List<Index> indexes);
+}
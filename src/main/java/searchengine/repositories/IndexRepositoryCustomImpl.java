@@ -0,0 +1,32 @@
+package searchengine.repositories;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.entities.Index;
+import java.util.List;
+
+@AllArgsConstructor
+public class IndexRepositoryCustomImpl implements IndexRepositoryCustom {
+
+    private static final String INSERT_INDEX =
+            "INSERT INTO indexes (page_id, lemma, lemma_rank, lemma_positions) " +
+                    "VALUES (?, ?, ?, ?)";
+    private static final int STATEMENT_BATCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Index> indexes) {
+        jdbcTemplate.batchUpdate(
+                INSERT_INDEX,
+                indexes,
+                STATEMENT_BATCH_SIZE,
+                (statement, index) -> {
+                    statement.setInt(1, index.getPageId());
+                    statement.setString(2, index.getLemma());
+                    statement.setFloat(3, index.getRank());
+                    statement.setBytes(4, index.getPositions());
+                }
+        );
+    }
+}
@@ -0,0 +1,37 @@
+package searchengine.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.entities.Lemma;
+import searchengine.entities.Site;
+import searchengine.models.IdRange;
+import java.util.Collection;
+import java.util.List;
+
+public interface LemmaRepository extends JpaRepository<Lemma, Integer>, LemmaRepositoryCustom {
+
+    @Query(value = "SELECT l.* FROM lemmas l " +
+            "JOIN sites s ON s.id = l.site_id AND s.generation = l.generation " +
+            "WHERE l.lemma IN :#{#lemmas}",
+            nativeQuery = true)
+    List<Lemma> findSearchableByLemmaIn(Collection<String> lemmas);
+
+    List<Lemma> findAllBySiteAndGenerationAndLemmaIn(Site site, int generation,
+                                                     Collection<String> lemmas);
+
+    long countBySiteAndGeneration(Site site, int generation);
+
+    @Query(value = "SELECT MIN(id) AS minId, MAX(id) AS maxId FROM lemmas " +
+            "WHERE site_id=:#{#site.id} AND generation=:#{#generation}",
+            nativeQuery = true)
+    IdRange findIdRangeBySiteAndGeneration(Site site, int generation);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM lemmas WHERE id BETWEEN :#{#fromId} AND :#{#toId} " +
+            "AND site_id=:#{#site.id} AND generation=:#{#generation}",
+            nativeQuery = true)
+    int deleteBySiteAndGenerationAndIdBetween(Site site, int generation, int fromId, int toId);
+}
@@ -0,0 +1,12 @@
+package searchengine.repositories;
+
+import searchengine.entities.Site;
+import java.util.Collection;
+import java.util.Map;
+
+public interface LemmaRepositoryCustom {
+
+    void incrementFrequencies(Site site, int generation, Map<String, Integer> frequencies);
+
+    void decrementFrequencies(Site site, int generation, Collection<String> lemmas);
+}
@@ -0,0 +1,66 @@
+package searchengine.repositories;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.entities.Site;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@AllArgsConstructor
+public class LemmaRepositoryCustomImpl implements LemmaRepositoryCustom {
+
+    private static final String INCREMENT_FREQUENCY =
+            "INSERT INTO lemmas (site_id, generation, lemma, frequency) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)";
+    private static final String DECREMENT_FREQUENCY =
+            "UPDATE lemmas SET frequency = frequency - 1 " +
+                    "WHERE site_id = ? AND generation = ? AND lemma = ?";
+    private static final String DELETE_UNUSED =
+            "DELETE FROM lemmas WHERE site_id = ? AND generation = ? AND frequency <= 0 " +
+                    "AND lemma IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void incrementFrequencies(Site site, int generation, Map<String, Integer> frequencies) {
+        jdbcTemplate.batchUpdate(
+                INCREMENT_FREQUENCY,
+                frequencies.entrySet()
+                        .stream()
+                        // concurrent batches lock the rows in the same order and do not deadlock
+                        .sorted(Map.Entry.comparingByKey())
+                        .map(entry -> new Object[]{
+                                site.getId(), generation, entry.getKey(), entry.getValue()
+                        })
+                        .toList()
+        );
+    }
+
+    @Override
+    @Transactional
+    public void decrementFrequencies(Site site, int generation, Collection<String> lemmas) {
+        if (lemmas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                DECREMENT_FREQUENCY,
+                lemmas.stream()
+                        .sorted()
+                        .map(lemma -> new Object[]{site.getId(), generation, lemma})
+                        .toList()
+        );
+        List<Object> args = new ArrayList<>();
+        args.add(site.getId());
+        args.add(generation);
+        args.addAll(lemmas);
+        jdbcTemplate.update(
+                DELETE_UNUSED.formatted(String.join(", ", Collections.nCopies(lemmas.size(), "?"))),
+                args.toArray()
+        );
+    }
+}
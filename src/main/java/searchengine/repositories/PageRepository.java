@@ -1,17 +1,57 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.entities.Page;
 import searchengine.entities.Site;
+import searchengine.models.IdRange;
+import searchengine.models.PagePath;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface PageRepository extends JpaRepository<Page, Integer> {
+public interface PageRepository extends JpaRepository<Page, Integer>, PageRepositoryCustom {
 
-    Optional<Page> findBySiteAndPath(Site site, String path);
+    Optional<Page> findBySiteAndGenerationAndPath(Site site, int generation, String path);
 
-    long countBySite(Site site);
+    @Query("SELECT new searchengine.entities.Page(p.id, s, p.path, p.title, " +
+            "CASE WHEN p.title IS NULL AND p.contentOffset IS NULL THEN p.content END, " +
+            "CASE WHEN p.contentOffset IS NULL THEN p.text END, " +
+            "p.contentOffset, p.forwardIndex, p.generation) " +
+            "FROM Page p JOIN p.site s WHERE p.id IN :#{#ids}")
+    List<Page> findResultsByIdIn(Collection<Integer> ids);
+
+    long countBySiteAndGeneration(Site site, int generation);
+
+    @Query(value = "SELECT id AS id, page_path AS path FROM pages " +
+            "WHERE site_id=:#{#site.id} AND generation=:#{#site.generation}",
+            nativeQuery = true)
+    List<PagePath> findPathsBySite(Site site);
+
+    @Query(value = "SELECT * FROM pages p " +
+            "WHERE p.site_id=:#{#site.id} AND p.generation=:#{#site.crawlGeneration} " +
+            "AND NOT EXISTS (SELECT 1 FROM indexes i WHERE i.page_id=p.id)",
+            nativeQuery = true)
+    List<Page> findUnindexedBySite(Site site);
+
+    @Query(value = "SELECT MIN(id) AS minId, MAX(id) AS maxId FROM pages " +
+            "WHERE site_id=:#{#site.id} AND generation=:#{#generation}",
+            nativeQuery = true)
+    IdRange findIdRangeBySiteAndGeneration(Site site, int generation);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM pages WHERE id BETWEEN :#{#fromId} AND :#{#toId} " +
+            "AND site_id=:#{#site.id} AND generation=:#{#generation}",
+            nativeQuery = true)
+    int deleteBySiteAndGenerationAndIdBetween(Site site, int generation, int fromId, int toId);
 
     @Transactional
-    void deleteAllBySite(Site site);
+    @Modifying
+    @Query(value = "UPDATE pages SET etag=:#{#page.etag}, last_modified=:#{#page.lastModified} " +
+            "WHERE id=:#{#page.id}",
+            nativeQuery = true)
+    void updateValidators(Page page);
 }
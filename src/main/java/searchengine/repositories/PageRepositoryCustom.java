@@ -0,0 +1,11 @@
+package searchengine.repositories;
+
+import searchengine.entities.Page;
+import java.util.List;
+
+public interface PageRepositoryCustom {
+
+    void insertAll(List<Page> pages);
+
+    void updateForwardIndexes(List<Page> pages);
+}
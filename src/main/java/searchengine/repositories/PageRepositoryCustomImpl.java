@@ -0,0 +1,137 @@
+package searchengine.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.entities.Page;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+
+@AllArgsConstructor
+@Slf4j
+public class PageRepositoryCustomImpl implements PageRepositoryCustom {
+
+    private static final String INSERT_PAGE =
+            "INSERT INTO pages (site_id, page_path, code, page_content, page_title, page_text, " +
+                    "etag, last_modified, content_hash, generation, content_offset) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_INDEXES =
+            "DELETE FROM indexes WHERE page_id = ?";
+    private static final String DELETE_PAGE =
+            "DELETE FROM pages WHERE id = ?";
+    private static final String UPDATE_FORWARD_INDEX =
+            "UPDATE pages SET page_forward_index = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A failed batch is inserted again one page at a time. A page that
+     * still fails keeps a null id, and the stored version it replaces is
+     * kept as well.
+     */
+    @Override
+    public void insertAll(List<Page> pages) {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                insertAtomically(connection, pages);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            pages.forEach(page -> page.setId(null));
+            if (pages.size() == 1) {
+                log.warn("{}{} is not saved - {}", pages.get(0).getSite().getUrl(),
+                        pages.get(0).getPath(), e.getMessage());
+                return;
+            }
+            pages.forEach(page -> insertAll(List.of(page)));
+        }
+    }
+
+    private void insertAtomically(Connection connection, List<Page> pages) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            replace(connection, pages);
+            return;
+        }
+        connection.setAutoCommit(false);
+        try {
+            replace(connection, pages);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void replace(Connection connection, List<Page> pages) throws SQLException {
+        List<Integer> replacedIds = pages.stream()
+                .map(Page::getReplaced)
+                .filter(Objects::nonNull)
+                .map(Page::getId)
+                .toList();
+        if (!replacedIds.isEmpty()) {
+            delete(connection.prepareStatement(DELETE_INDEXES), replacedIds);
+            delete(connection.prepareStatement(DELETE_PAGE), replacedIds);
+        }
+        insert(connection.prepareStatement(INSERT_PAGE, Statement.RETURN_GENERATED_KEYS), pages);
+    }
+
+    private void delete(PreparedStatement statement, List<Integer> ids) throws SQLException {
+        try (statement) {
+            for (Integer id : ids) {
+                statement.setInt(1, id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insert(PreparedStatement statement, List<Page> pages) throws SQLException {
+        try (statement) {
+            for (Page page : pages) {
+                statement.setInt(1, page.getSiteId());
+                statement.setString(2, page.getPath());
+                statement.setInt(3, page.getCode());
+                boolean stored = page.getContentOffset() != null;
+                statement.setString(4, stored ? null : page.getContent());
+                statement.setString(5, page.getTitle());
+                statement.setString(6, stored ? null : page.getText());
+                statement.setString(7, page.getEtag());
+                statement.setString(8, page.getLastModified());
+                statement.setString(9, page.getContentHash());
+                statement.setInt(10, page.getGeneration());
+                statement.setObject(11, page.getContentOffset(), Types.BIGINT);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (Page page : pages) {
+                    keys.next();
+                    page.setId(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void updateForwardIndexes(List<Page> pages) {
+        jdbcTemplate.batchUpdate(
+                UPDATE_FORWARD_INDEX,
+                pages,
+                pages.size(),
+                (statement, page) -> {
+                    statement.setBytes(1, page.getForwardIndex());
+                    statement.setInt(2, page.getId());
+                }
+        );
+    }
+}
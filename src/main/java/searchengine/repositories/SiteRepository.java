@@ -1,10 +1,32 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.entities.Site;
+import searchengine.models.SiteCounts;
+import java.util.List;
 import java.util.Optional;
 
 public interface SiteRepository extends JpaRepository<Site, Integer> {
 
     Optional<Site> findByUrl(String url);
+
+    @Query(value = "SELECT generation FROM pages WHERE site_id=:#{#site.id} " +
+            "UNION SELECT generation FROM lemmas WHERE site_id=:#{#site.id}",
+            nativeQuery = true)
+    List<Integer> findStoredGenerations(Site site);
+
+    @Query(value = "SELECT id AS siteId, generation AS generation, " +
+            "page_count AS pages, lemma_count AS lemmas FROM sites",
+            nativeQuery = true)
+    List<SiteCounts> findCounts();
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE sites SET page_count=:#{#pages}, lemma_count=:#{#lemmas} " +
+            "WHERE id=:#{#siteId} AND generation=:#{#generation}",
+            nativeQuery = true)
+    void updateCounts(int siteId, int generation, long pages, long lemmas);
 }
@@ -0,0 +1,311 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.ContentStoreSettings;
+import searchengine.entities.Page;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Page bodies in memory-mapped segment files, one directory per site
+ * generation. A record is a 16 byte header (text block length, text
+ * length, HTML block length, HTML length) followed by the deflated text
+ * and HTML. The header is written last and a zero header ends a segment,
+ * so a record torn by a crash is never read back. Offsets depend on the
+ * segment size, so it must not change once the store has records.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ContentStore {
+
+    private static final int HEADER_LENGTH = 16;
+    private static final String SEGMENT_FILE = "segment-%05d.dat";
+    private static final String GENERATION_DIRECTORY = "%d-%d";
+    private static final Pattern GENERATION_DIRECTORY_PATTERN = Pattern.compile("(\\d+)-(\\d+)");
+
+    private final ContentStoreSettings settings;
+
+    private final Map<Key, Segments> generations = new ConcurrentHashMap<>();
+    private final List<Segments> dirty = new ArrayList<>();
+    private Path directory;
+    private int segmentSize;
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Path.of(settings.getDirectory());
+        segmentSize = settings.getSegmentSize();
+        if (settings.isEnabled()) {
+            Files.createDirectories(directory);
+        } else if (!Files.isDirectory(directory)) {
+            return;
+        }
+        // pages saved while the store was enabled keep their offsets
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                Matcher matcher = GENERATION_DIRECTORY_PATTERN.matcher(path.getFileName().toString());
+                if (Files.isDirectory(path) && matcher.matches()) {
+                    generations.put(
+                            new Key(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))),
+                            openSegments(path)
+                    );
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Returns null if the store is disabled or can not take the body,
+     * which is then kept in the pages table.
+     */
+    @Nullable
+    public synchronized Long append(Page page) {
+        if (!settings.isEnabled() || page.getContent() == null) {
+            return null;
+        }
+        byte[] text = page.getText() == null ? new byte[0] : page.getText().getBytes(StandardCharsets.UTF_8);
+        byte[] content = page.getContent().getBytes(StandardCharsets.UTF_8);
+        byte[] textBlock = deflate(text);
+        byte[] contentBlock = deflate(content);
+        long length = (long) HEADER_LENGTH + textBlock.length + contentBlock.length;
+        if (length + HEADER_LENGTH > segmentSize) {
+            return null;
+        }
+        Segments store;
+        try {
+            store = getWritableSegments(new Key(page.getSiteId(), page.getGeneration()));
+            if (store.position + length + HEADER_LENGTH > segmentSize) {
+                store.add(map(store.directory, store.list.size()));
+                store.position = 0;
+            }
+        } catch (IOException e) {
+            log.error("Content store segment is not created - {}", e.getMessage());
+            return null;
+        }
+        MappedByteBuffer segment = store.list.get(store.list.size() - 1);
+        if (store.firstDirty < 0) {
+            store.firstDirty = store.list.size() - 1;
+            dirty.add(store);
+        }
+        int position = store.position;
+        segment.put(position + HEADER_LENGTH, textBlock);
+        segment.put(position + HEADER_LENGTH + textBlock.length, contentBlock);
+        segment.putInt(position + 4, text.length);
+        segment.putInt(position + 8, contentBlock.length);
+        segment.putInt(position + 12, content.length);
+        segment.putInt(position, textBlock.length);
+        store.position += (int) length;
+        return (long) (store.list.size() - 1) * segmentSize + position;
+    }
+
+    public void loadText(Page page) {
+        if (page.getContentOffset() != null && page.getText() == null) {
+            page.setText(read(page, false));
+        }
+    }
+
+    public void load(Page page) {
+        loadText(page);
+        if (page.getContentOffset() != null && page.getContent() == null) {
+            page.setContent(read(page, true));
+        }
+    }
+
+    public synchronized void flush() {
+        for (Segments store : dirty) {
+            for (int i = store.firstDirty; i < store.list.size(); i++) {
+                store.list.get(i).force();
+            }
+            store.firstDirty = -1;
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Deletes the segments of a purged generation. Searches still reading
+     * them keep their mappings until the buffers are collected.
+     */
+    public synchronized void dropGeneration(int siteId, int generation) {
+        Segments store = generations.remove(new Key(siteId, generation));
+        if (store == null) {
+            return;
+        }
+        dirty.remove(store);
+        try (Stream<Path> paths = Files.list(store.directory)) {
+            for (Path path : paths.toList()) {
+                Files.delete(path);
+            }
+            Files.delete(store.directory);
+        } catch (IOException e) {
+            log.warn("Content store {} is not deleted - {}", store.directory, e.getMessage());
+        }
+    }
+
+    public synchronized long getSize() {
+        return generations.values()
+                .stream()
+                .mapToLong(store -> store.list.isEmpty() ? 0 :
+                        (long) (store.list.size() - 1) * segmentSize + store.position)
+                .sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private String read(Page page, boolean content) {
+        long offset = page.getContentOffset();
+        Segments store = generations.get(new Key(page.getSiteId(), page.getGeneration()));
+        MappedByteBuffer[] current = store == null ? new MappedByteBuffer[0] : store.readable;
+        int index = (int) (offset / segmentSize);
+        if (index >= current.length) {
+            throw new IllegalStateException("Content offset " + offset + " of generation " +
+                    page.getGeneration() + " of site " + page.getSiteId() + " is not in the store");
+        }
+        MappedByteBuffer segment = current[index];
+        int start = (int) (offset % segmentSize);
+        int textBlockLength = segment.getInt(start);
+        int blockStart = start + HEADER_LENGTH + (content ? textBlockLength : 0);
+        int blockLength = content ? segment.getInt(start + 8) : textBlockLength;
+        int length = segment.getInt(start + (content ? 12 : 4));
+        return new String(
+                inflate(segment.slice(blockStart, blockLength), length),
+                StandardCharsets.UTF_8
+        );
+    }
+
+    private Segments getWritableSegments(Key key) throws IOException {
+        Segments store = generations.get(key);
+        if (store == null) {
+            Path path = Files.createDirectories(
+                    directory.resolve(GENERATION_DIRECTORY.formatted(key.siteId(), key.generation())));
+            store = new Segments(path);
+            store.add(map(path, 0));
+            generations.put(key, store);
+        }
+        return store;
+    }
+
+    private Segments openSegments(Path path) throws IOException {
+        Segments store = new Segments(path);
+        for (int i = 0; Files.exists(path.resolve(SEGMENT_FILE.formatted(i))); i++) {
+            store.add(settings.isEnabled() ? map(path, i) : mapReadOnly(path, i));
+        }
+        if (settings.isEnabled() && !store.list.isEmpty()) {
+            store.position = findEnd(store.list.get(store.list.size() - 1));
+        }
+        return store;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteBuffer block = ByteBuffer.allocate(bytes.length + bytes.length / 1000 + 64);
+            while (!deflater.finished()) {
+                if (!block.hasRemaining()) {
+                    block = ByteBuffer.allocate(block.capacity() * 2).put(block.flip());
+                }
+                deflater.deflate(block);
+            }
+            byte[] result = new byte[block.position()];
+            block.flip().get(result);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(ByteBuffer block, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                read += inflater.inflate(bytes, read, length - read);
+            }
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Content store record is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns the position after the last complete record.
+     */
+    private int findEnd(MappedByteBuffer segment) {
+        int end = 0;
+        while (end + HEADER_LENGTH <= segmentSize) {
+            int textBlockLength = segment.getInt(end);
+            if (textBlockLength <= 0) {
+                break;
+            }
+            end += HEADER_LENGTH + textBlockLength + segment.getInt(end + 8);
+        }
+        return end;
+    }
+
+    private MappedByteBuffer map(Path path, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(path.resolve(SEGMENT_FILE.formatted(index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path path, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(path.resolve(SEGMENT_FILE.formatted(index)),
+                StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private record Key(int siteId, int generation) {
+    }
+
+    private static class Segments {
+        private final Path directory;
+        private final List<MappedByteBuffer> list = new ArrayList<>();
+        private volatile MappedByteBuffer[] readable = new MappedByteBuffer[0];
+        private int position;
+        private int firstDirty = -1;
+
+        Segments(Path directory) {
+            this.directory = directory;
+        }
+
+        void add(MappedByteBuffer segment) {
+            list.add(segment);
+            readable = list.toArray(MappedByteBuffer[]::new);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import searchengine.entities.Site;
+import searchengine.services.index.RankingCache;
+import searchengine.services.utils.LemmaProcessor;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the crawl, indexing and search stages. Hosts and sites are
+ * tags, as there are only as many of them as configured sites.
+ */
+@Component
+@RequiredArgsConstructor
+public class EngineMetrics {
+
+    public static final String FETCH_ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final ThreadPoolTaskExecutor executor;
+    private final RankingCache rankingCache;
+    private final ContentStore contentStore;
+
+    @PostConstruct
+    public void bindMeters() {
+        Gauge.builder("indexing.executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Indexing tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("indexing.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Indexing threads running a task")
+                .register(registry);
+        Gauge.builder("content.store.size", contentStore, ContentStore::getSize)
+                .description("Bytes of page bodies in the content store")
+                .baseUnit("bytes")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, LemmaProcessor.getCache(false), "lemmas");
+        CaffeineCacheMetrics.monitor(registry, LemmaProcessor.getCache(true), "lemma-transformations");
+        CaffeineCacheMetrics.monitor(registry, rankingCache.getCache(), "rankings");
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * The status is {@link #FETCH_ERROR} if no response came.
+     */
+    public void recordFetch(Timer.Sample sample, String host, String status) {
+        sample.stop(Timer.builder("crawl.fetch")
+                .tag("host", host)
+                .tag("status", status)
+                .register(registry));
+    }
+
+    public void pageSaved(Site site) {
+        registry.counter("crawl.pages.saved", "site", site.getUrl()).increment();
+    }
+
+    public <T> T timeLemmatization(Supplier<T> lemmatization) {
+        return registry.timer("indexing.lemmatization").record(lemmatization);
+    }
+
+    public void timeBatchWrite(String table, Runnable write) {
+        registry.timer("indexing.batch.write", "table", table).record(write);
+    }
+
+    public <T> T timeSearchStage(String stage, Supplier<T> search) {
+        return registry.timer("search.stage", "stage", stage).record(search);
+    }
+}
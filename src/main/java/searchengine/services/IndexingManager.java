@@ -1,78 +1,601 @@
 package searchengine.services;
 
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.WriterSettings;
+import searchengine.entities.Index;
 import searchengine.entities.Page;
 import searchengine.entities.Site;
 import searchengine.enums.Patterns;
+import searchengine.enums.Statuses;
+import searchengine.models.PageIndexes;
+import searchengine.models.PagePath;
 import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.index.InvertedIndex;
 import searchengine.services.tasks.IndexingPagesTask;
-import searchengine.services.tasks.SavePagesTask;
 import searchengine.services.tasks.SearchPagesTask;
+import searchengine.services.utils.BatchWriter;
+import searchengine.services.utils.CrawlCheckpoint;
+import searchengine.services.utils.CrawlFrontier;
+import searchengine.services.utils.CrawlTracker;
+import searchengine.services.utils.HostScheduler;
+import searchengine.services.utils.UrlSeenSet;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Getter
+@Slf4j
 public class IndexingManager {
 
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
     private final ThreadPoolTaskExecutor executor;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final IndexRepository indexRepository;
+    private final LemmaRepository lemmaRepository;
+    private final InvertedIndex invertedIndex;
+    private final PurgeManager purgeManager;
+    private final ContentStore contentStore;
+    private final StatisticsManager statisticsManager;
+    private final EngineMetrics metrics;
+    private final WriterSettings writerSettings;
+    private final CrawlSettings crawlSettings;
 
-    private final Set<Site> sites = ConcurrentHashMap.newKeySet();
-    private final Set<Page> pages = ConcurrentHashMap.newKeySet();
+    private CrawlTracker crawlTracker;
+    private BatchWriter<Page> pageWriter;
+    private BatchWriter<PageIndexes> indexWriter;
+    private Semaphore fetchPermits;
+    private volatile ExecutorService fetchExecutor;
+    private HostScheduler hostScheduler;
+    private UrlSeenSet seenUrls;
+    private CrawlFrontier frontier;
+    private CrawlCheckpoint checkpoint;
+    private ScheduledExecutorService checkpointTimer;
+    private volatile AtomicInteger dispatched = new AtomicInteger();
+    private final Set<String> gonePaths = ConcurrentHashMap.newKeySet();
 
-    public void startIndexingPagesTask(Page page) {
-        executor.submit(new IndexingPagesTask(this, page));
+    @PostConstruct
+    public void initCrawl() {
+        crawlTracker = new CrawlTracker(this::completeSite);
+        fetchPermits = new Semaphore(crawlSettings.getMaxConcurrentFetches());
+        seenUrls = new UrlSeenSet();
+        frontier = new CrawlFrontier(crawlSettings.getFrontierMemoryCapacity());
+        checkpoint = new CrawlCheckpoint(Path.of(crawlSettings.getCheckpointFile()));
+        int interval = crawlSettings.getCheckpointInterval();
+        if (interval > 0) {
+            checkpointTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "crawl-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointTimer.scheduleWithFixedDelay(this::saveCheckpoint,
+                    interval, interval, TimeUnit.MILLISECONDS);
+        }
+        if (crawlSettings.isVirtualThreads()) {
+            fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        hostScheduler = new HostScheduler(
+                crawlSettings.getHostRate(),
+                crawlSettings.getHostBurst(),
+                crawlSettings.isRespectCrawlDelay(),
+                task -> getFetchExecutor().execute(() -> runWithFetchPermit(task))
+        );
+    }
+
+    private void runWithFetchPermit(Runnable task) {
+        try {
+            fetchPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            fetchPermits.release();
+        }
+    }
+
+    @PostConstruct
+    public void startWriters() {
+        pageWriter = new BatchWriter<>(
+                this::writePages,
+                writerSettings.getBatchSize(),
+                writerSettings.getFlushInterval(),
+                writerSettings.getQueueCapacity()
+        );
+        pageWriter.start("page-writer", writerSettings.getThreads());
+        indexWriter = new BatchWriter<>(
+                this::writeIndexes,
+                writerSettings.getBatchSize(),
+                writerSettings.getFlushInterval(),
+                writerSettings.getQueueCapacity()
+        );
+        indexWriter.start("index-writer", writerSettings.getThreads());
     }
 
-    public void startSavePagesTask() {
-        executor.submit(new SavePagesTask(this));
+    public void savePage(Page page) {
+        if (crawlTracker.begin(page.getSite())) {
+            pageWriter.submit(page);
+        }
     }
 
-    public void startSearchPagesTask(Page page) {
-        executor.submit(new SearchPagesTask(this, page));
+    public void saveIndexes(PageIndexes pageIndexes) {
+        if (crawlTracker.begin(pageIndexes.page().getSite())) {
+            indexWriter.submit(pageIndexes);
+        }
     }
 
-    public void startIndexing() {
-        sites.forEach(site ->
-                startSearchPagesTask(
-                        new Page(site, Patterns.ROOT_PATH.getStringValue())
+    private void writePages(List<Page> batch) {
+        try {
+            batch.forEach(page -> page.setContentOffset(contentStore.append(page)));
+            contentStore.flush();
+            Map<Integer, List<String>> replacedLemmas = new HashMap<>();
+            batch.stream()
+                    .map(Page::getReplaced)
+                    .filter(Objects::nonNull)
+                    .forEach(replaced -> replacedLemmas.put(
+                            replaced.getId(), indexRepository.findLemmasByPageId(replaced.getId())));
+            metrics.timeBatchWrite("pages", () -> pageRepository.insertAll(batch));
+            batch.stream()
+                    .filter(page -> page.getId() != null)
+                    .forEach(page -> {
+                        if (page.getReplaced() != null) {
+                            forgetPage(page.getReplaced(), replacedLemmas.get(page.getReplaced().getId()));
+                        }
+                        crawlTracker.pageSaved(page.getSite());
+                        statisticsManager.addPages(page.getSite(), page.getGeneration(), 1);
+                        metrics.pageSaved(page.getSite());
+                        startIndexingPagesTask(page);
+                    });
+        } finally {
+            batch.forEach(page -> crawlTracker.end(page.getSite()));
+        }
+    }
+
+    private void writeIndexes(List<PageIndexes> batch) {
+        try {
+            metrics.timeBatchWrite("indexes", () -> insertIndexes(batch));
+        } finally {
+            batch.forEach(pageIndexes ->
+                    crawlTracker.end(pageIndexes.page().getSite())
+            );
+        }
+    }
+
+    private void insertIndexes(List<PageIndexes> batch) {
+        indexRepository.insertAll(
+                batch.stream()
+                        .flatMap(pageIndexes -> pageIndexes.ranks()
+                                .entrySet()
+                                .stream()
+                                .map(entry -> new Index(
+                                        pageIndexes.page(),
+                                        entry.getKey(),
+                                        entry.getValue(),
+                                        pageIndexes.positions().get(entry.getKey())
+                                ))
+                        )
+                        .toList()
+        );
+        pageRepository.updateForwardIndexes(
+                batch.stream()
+                        .map(PageIndexes::page)
+                        .filter(page -> page.getForwardIndex() != null)
+                        .toList()
+        );
+        batch.stream()
+                .collect(Collectors.groupingBy(pageIndexes -> pageIndexes.page().getSite()))
+                .forEach((site, siteList) -> siteList.stream()
+                        .collect(Collectors.groupingBy(pageIndexes -> pageIndexes.page().getGeneration()))
+                        .forEach((generation, list) -> lemmaRepository.incrementFrequencies(
+                                site,
+                                generation,
+                                list.stream()
+                                        .flatMap(pageIndexes -> pageIndexes.ranks().keySet().stream())
+                                        .collect(Collectors.toMap(
+                                                Function.identity(),
+                                                lemma -> 1,
+                                                Integer::sum
+                                        ))
+                        )));
+        batch.forEach(pageIndexes -> statisticsManager.addLemmas(
+                pageIndexes.page().getSite(),
+                pageIndexes.page().getGeneration(),
+                invertedIndex.addPage(
+                        pageIndexes.page().getSiteId(),
+                        pageIndexes.page().getGeneration(),
+                        pageIndexes.page().getId(),
+                        pageIndexes.ranks()
                 )
+        ));
+    }
+
+    public void startIndexingPagesTask(Page page) {
+        track(page.getSite(), new IndexingPagesTask(this, page))
+                .ifPresent(executor::execute);
+    }
+
+    public void enqueuePage(Page page, int depth) {
+        if (seenUrls.add(page.getSite().getUrl(), page.getPath())) {
+            offer(page, depth);
+        }
+    }
+
+    private void offer(Page page, int depth) {
+        Site site = page.getSite();
+        if (crawlTracker.begin(site)) {
+            frontier.offer(site, page.getPath(), page.getGeneration(), depth);
+            dispatch();
+        }
+    }
+
+    /**
+     * Every finished fetch pulls the next one, so the executor and
+     * scheduler queues stay bounded however large the frontier grows.
+     */
+    private void dispatch() {
+        AtomicInteger counter = dispatched;
+        while (counter.incrementAndGet() <= crawlSettings.getMaxConcurrentFetches()) {
+            CrawlFrontier.Entry entry = frontier.poll();
+            if (entry == null) {
+                break;
+            }
+            Site site = entry.site();
+            Page page = new Page(site, entry.path());
+            page.setGeneration(entry.generation());
+            Runnable task = new SearchPagesTask(this, page, entry.depth());
+            hostScheduler.schedule(site.getUrl(), () -> {
+                try {
+                    getFetchExecutor().execute(() -> {
+                        try {
+                            if (crawlTracker.isActive(site)) {
+                                task.run();
+                            }
+                        } finally {
+                            complete(entry, counter);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    complete(entry, counter);
+                }
+            });
+        }
+        counter.decrementAndGet();
+    }
+
+    private void complete(CrawlFrontier.Entry entry, AtomicInteger counter) {
+        frontier.done(entry);
+        crawlTracker.end(entry.site());
+        counter.decrementAndGet();
+        if (counter == dispatched) {
+            dispatch();
+        }
+    }
+
+    private Executor getFetchExecutor() {
+        return fetchExecutor != null ? fetchExecutor : executor;
+    }
+
+    /**
+     * Returns an empty optional if the crawl of the site is stopped.
+     */
+    private Optional<Runnable> track(Site site, Runnable task) {
+        if (!crawlTracker.begin(site)) {
+            return Optional.empty();
+        }
+        return Optional.of(() -> {
+            try {
+                if (crawlTracker.isActive(site)) {
+                    task.run();
+                }
+            } finally {
+                crawlTracker.end(site);
+            }
+        });
+    }
+
+    /**
+     * With a stored page the request is conditional on its validators,
+     * so an unchanged page comes back as 304 Not Modified.
+     */
+    public Connection.Response fetch(Site site, String path, @Nullable Page stored)
+            throws IOException, InterruptedException {
+        Connection connection = Jsoup.connect(site.getUrl() + path);
+        if (stored != null && stored.getEtag() != null) {
+            connection.header(IF_NONE_MATCH, stored.getEtag());
+        }
+        if (stored != null && stored.getLastModified() != null) {
+            connection.header(IF_MODIFIED_SINCE, stored.getLastModified());
+        }
+        fetchPermits.acquire();
+        Timer.Sample sample = metrics.startTimer();
+        String status = EngineMetrics.FETCH_ERROR;
+        try {
+            Connection.Response response = connection
+                    .execute()
+                    .bufferUp();
+            status = String.valueOf(response.statusCode());
+            return response;
+        } catch (HttpStatusException e) {
+            status = String.valueOf(e.getStatusCode());
+            throw e;
+        } finally {
+            metrics.recordFetch(sample, URI.create(site.getUrl()).getHost(), status);
+            fetchPermits.release();
+        }
+    }
+
+    /**
+     * Returns the page saved by the previous crawl of the site,
+     * if the crawl is incremental.
+     */
+    public Optional<Page> findStoredPage(Page page) {
+        Site site = page.getSite();
+        if (!crawlSettings.isIncremental() || site.isRebuilding()) {
+            return Optional.empty();
+        }
+        Optional<Page> stored =
+                pageRepository.findBySiteAndGenerationAndPath(site, site.getGeneration(), page.getPath());
+        stored.ifPresent(contentStore::load);
+        return stored;
+    }
+
+    public void keepPage(Page stored, Page fetched) {
+        crawlTracker.pageSaved(stored.getSite());
+        if (Objects.equals(stored.getEtag(), fetched.getEtag()) &&
+                Objects.equals(stored.getLastModified(), fetched.getLastModified())) {
+            return;
+        }
+        stored.setEtag(fetched.getEtag());
+        stored.setLastModified(fetched.getLastModified());
+        pageRepository.updateValidators(stored);
+    }
+
+    public void deletePage(Page page) {
+        List<String> lemmas = indexRepository.findLemmasByPageId(page.getId());
+        indexRepository.deleteAllByPageId(page.getId());
+        pageRepository.delete(page);
+        forgetPage(page, lemmas);
+    }
+
+    private void forgetPage(Page page, List<String> lemmas) {
+        int unused = invertedIndex.removePage(page.getSiteId(), page.getGeneration(), page.getId(), lemmas);
+        lemmaRepository.decrementFrequencies(page.getSite(), page.getGeneration(), lemmas);
+        statisticsManager.addPages(page.getSite(), page.getGeneration(), -1);
+        statisticsManager.addLemmas(page.getSite(), page.getGeneration(), -unused);
+    }
+
+    public void startIndexing(Collection<Site> sites) {
+        deleteCheckpoint();
+        seenUrls.clear();
+        gonePaths.clear();
+        sites.forEach(site -> {
+            invertedIndex.discard(site.getId());
+            invertedIndex.setGeneration(site.getId(), site.getGeneration());
+            crawlTracker.register(site, true);
+            enqueuePage(
+                    new Page(site, Patterns.ROOT_PATH.getStringValue()),
+                    0
+            );
+        });
+    }
+
+    /**
+     * Returns false if there is no checkpoint to resume.
+     */
+    public boolean resumeIndexing() {
+        if (!checkpoint.exists()) {
+            return false;
+        }
+        seenUrls.clear();
+        gonePaths.clear();
+        frontier.clear();
+        List<Site> sites = new ArrayList<>();
+        try {
+            checkpoint.restore(
+                    (siteId, pages) -> siteRepository.findById(siteId)
+                            .map(site -> {
+                                crawlTracker.resume(site, pages);
+                                sites.add(site);
+                                return site;
+                            })
+                            .orElse(null),
+                    gonePaths,
+                    seenUrls,
+                    frontier,
+                    crawlTracker::begin
+            );
+        } catch (IOException e) {
+            log.error("Crawl checkpoint is not read - {}", e.getMessage());
+            crawlTracker.clear();
+            frontier.clear();
+            return false;
+        }
+        sites.forEach(site -> {
+            invertedIndex.setGeneration(site.getId(), site.getGeneration());
+            saveStatus(site, Statuses.INDEXING, null);
+            indexUnindexedPages(site);
+        });
+        sites.forEach(crawlTracker::end);
+        dispatch();
+        return !sites.isEmpty();
+    }
+
+    /**
+     * A stop drops the queued indexing tasks of pages already saved and
+     * seen, so the resumed crawl would not index them otherwise.
+     */
+    private void indexUnindexedPages(Site site) {
+        pageRepository.findUnindexedBySite(site).forEach(page -> {
+            page.setSite(site);
+            contentStore.loadText(page);
+            startIndexingPagesTask(page);
+        });
+    }
+
+    private void saveCheckpoint() {
+        List<CrawlTracker.SiteCrawl> crawls = crawlTracker.getFullCrawls();
+        if (crawls.isEmpty()) {
+            return;
+        }
+        try {
+            checkpoint.save(crawls, gonePaths, seenUrls, frontier);
+        } catch (IOException e) {
+            log.error("Crawl checkpoint is not saved - {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdownCrawl() {
+        if (checkpointTimer != null) {
+            checkpointTimer.shutdownNow();
+        }
+        saveCheckpoint();
+    }
+
+    private void deleteCheckpoint() {
+        try {
+            checkpoint.delete();
+        } catch (IOException e) {
+            log.error("Crawl checkpoint is not deleted - {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queues the page even if the last crawl has seen it.
+     */
+    public void indexPage(Page page) {
+        crawlTracker.register(page.getSite(), false);
+        offer(page, 0);
+    }
+
+    private void completeSite(CrawlTracker.SiteCrawl crawl) {
+        Site site = crawl.getSite();
+        if (crawl.getPages() == 0) {
+            abortSite(site, site.getLastError());
+            return;
+        }
+        if (site.isRebuilding()) {
+            int previous = site.getGeneration();
+            site.setGeneration(site.getCrawlGeneration());
+            saveStatus(site, Statuses.INDEXED, "");
+            invertedIndex.activate(site.getId(), site.getGeneration());
+            statisticsManager.dropGeneration(site, previous);
+            purgeManager.purgeGeneration(site, previous);
+        } else {
+            if (crawlSettings.isIncremental()) {
+                deleteUnseenPages(site);
+            }
+            saveStatus(site, Statuses.INDEXED, "");
+        }
+        if (crawlTracker.getFullCrawls().isEmpty()) {
+            deleteCheckpoint();
+        }
+    }
+
+    private void abortSite(Site site, String error) {
+        if (site.isRebuilding()) {
+            invertedIndex.discard(site.getId());
+            statisticsManager.dropGeneration(site, site.getCrawlGeneration());
+            purgeManager.purgeGeneration(site, site.getCrawlGeneration());
+            site.setCrawlGeneration(site.getGeneration());
+        }
+        saveStatus(site, Statuses.FAILED, error);
+    }
+
+    /**
+     * Keeps what the crawl has built, so it can be resumed.
+     */
+    public void interruptSite(Site site, String error) {
+        saveStatus(site, Statuses.FAILED, error);
+    }
+
+    private void saveStatus(Site site, Statuses status, String error) {
+        site.setStatus(status);
+        site.setLastError(error);
+        site.setStatusTime(
+                Instant.now()
+                        .truncatedTo(ChronoUnit.SECONDS)
         );
-        startSavePagesTask();
+        siteRepository.save(site);
+    }
+
+    private void deleteUnseenPages(Site site) {
+        List<Integer> unseenIds = pageRepository.findPathsBySite(site)
+                .stream()
+                .filter(page -> !seenUrls.contains(site.getUrl(), page.getPath()) ||
+                        gonePaths.contains(site.getUrl() + page.getPath()))
+                .map(PagePath::getId)
+                .toList();
+        if (!unseenIds.isEmpty()) {
+            pageRepository.findAllById(unseenIds).forEach(this::deletePage);
+        }
     }
 
     public boolean isIndexing() {
-        return executor.getActiveCount() > 0;
+        return crawlTracker.isActive();
     }
 
-    public boolean isActiveThreadCountMoreThanOne() {
-        return executor.getActiveCount() > 1;
+    public boolean isIndexing(Site site) {
+        return crawlTracker.isActive(site);
     }
 
     public void stopIndexing() {
+        saveCheckpoint();
+        crawlTracker.clear();
+        frontier.clear();
+        dispatched = new AtomicInteger();
         executor.setWaitForTasksToCompleteOnShutdown(false);
         executor.shutdown();
         executor.initialize();
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+            fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
     }
 
-    public void setSites(Set<Site> sites) {
-        this.sites.addAll(sites);
-    }
-
-    public void addPage(Page page) {
-        pages.add(page);
-    }
-
-    public boolean isPagePresent(Page page) {
-        return pages.contains(page);
+    public void markGone(Page page) {
+        gonePaths.add(page.getSite().getUrl() + page.getPath());
     }
 }
@@ -6,6 +6,7 @@ import searchengine.models.statistics.StatisticsResponse;
 public interface IndexingService {
     boolean startIndexing();
     boolean stopIndexing();
+    boolean resumeIndexing();
     boolean indexPage(String url);
     StatisticsResponse getStatistics();
     SearchResults getSearchResults(String query, String site, int offset, int limit);
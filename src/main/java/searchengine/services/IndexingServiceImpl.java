@@ -2,45 +2,54 @@ package searchengine.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 import org.springframework.stereotype.Service;
+import searchengine.config.CrawlSettings;
+import searchengine.config.SearchSettings;
 import searchengine.config.SiteList;
-import searchengine.entities.Index;
+import searchengine.entities.Lemma;
 import searchengine.entities.Page;
 import searchengine.entities.Site;
 import searchengine.enums.Constants;
 import searchengine.enums.Messages;
 import searchengine.enums.Patterns;
 import searchengine.enums.Statuses;
+import searchengine.models.IndexCandidate;
 import searchengine.models.Meaning;
-import searchengine.models.MeaningPositions;
 import searchengine.models.SearchResult;
 import searchengine.models.SearchResults;
-import searchengine.models.Snippet;
+import searchengine.models.TokenLemma;
 import searchengine.models.statistics.DetailedStatisticsItem;
 import searchengine.models.statistics.StatisticsData;
 import searchengine.models.statistics.StatisticsResponse;
 import searchengine.models.statistics.TotalStatistics;
 import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.index.InvertedIndex;
+import searchengine.services.index.PositionalRanker;
+import searchengine.services.index.Postings;
+import searchengine.services.index.Ranking;
+import searchengine.services.index.RankingCache;
+import searchengine.services.index.TopK;
 import searchengine.services.utils.LemmaProcessor;
+import searchengine.services.utils.SnippetBuilder;
+import searchengine.services.utils.TextExtractor;
 
-import javax.annotation.Nullable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 @Service
 @AllArgsConstructor
@@ -48,71 +57,93 @@ import java.util.stream.Stream;
 public class IndexingServiceImpl implements IndexingService {
 
     private final SiteList list;
+    private final SearchSettings searchSettings;
+    private final CrawlSettings crawlSettings;
     private final IndexingManager indexingManager;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final IndexRepository indexRepository;
-
-    @Nullable
-    private String query;
-    @Nullable
-    private String siteUrl;
-    @Nullable
-    private SearchResults searchResults;
+    private final LemmaRepository lemmaRepository;
+    private final InvertedIndex invertedIndex;
+    private final RankingCache rankingCache;
+    private final SearchExecutor searchExecutor;
+    private final PositionalRanker positionalRanker;
+    private final PurgeManager purgeManager;
+    private final ContentStore contentStore;
+    private final StatisticsManager statisticsManager;
+    private final EngineMetrics metrics;
 
     @Override
     public boolean startIndexing() {
         if (indexingManager.isIndexing()) {
             return false;
         }
-        indexingManager.setSites(
+        indexingManager.startIndexing(
                 list.getSites().stream()
                         .map(this::setStatusSite)
-                        .collect(Collectors.toSet())
+                        .toList()
         );
-        indexingManager.startIndexing();
         return true;
     }
 
+    /**
+     * An incremental crawl updates the searched generation. A full crawl
+     * builds the next one.
+     */
     private Site setStatusSite(Site site) {
-        return updateStatusSite(site, Statuses.INDEXING, null);
-    }
-
-    private Site updateStatusSite(Site site,
-                                  Statuses status,
-                                  String lastError) {
-        siteRepository.findByUrl(site.getUrl())
-                .ifPresent(this::deleteOldIndexes);
-        site.setStatus(status);
+        Optional<Site> stored = siteRepository.findByUrl(site.getUrl());
+        if (stored.isPresent()) {
+            Site storedSite = stored.get();
+            storedSite.setName(site.getName());
+            storedSite.setCrawlGeneration(crawlSettings.isIncremental() ?
+                    storedSite.getGeneration() : getNextGeneration(storedSite));
+            site = storedSite;
+        }
+        site.setStatus(Statuses.INDEXING);
         site.setStatusTime(
                 Instant.now()
                         .truncatedTo(ChronoUnit.SECONDS)
         );
-        site.setLastError(lastError);
+        site.setLastError(null);
         site = siteRepository.save(site);
+        if (stored.isPresent()) {
+            purgeManager.purgeStaleGenerations(site);
+        }
         return site;
     }
 
-    private void deleteOldIndexes(Site site) {
-        indexRepository.deleteOldIndexesBySite(site);
-        pageRepository.deleteAllBySite(site);
-        siteRepository.delete(site);
+    /**
+     * Returns a generation above all the stored ones, so that a new crawl
+     * never shares its rows with an aborted one that is still purged.
+     */
+    private int getNextGeneration(Site site) {
+        return siteRepository.findStoredGenerations(site)
+                .stream()
+                .mapToInt(Integer::intValue)
+                .reduce(site.getGeneration(), Math::max) + 1;
     }
 
     @Override
     public boolean stopIndexing() {
         if (indexingManager.isIndexing()) {
-            List<Site> sites = siteRepository.findAll();
-            sites.forEach(site ->
-                    updateStatusSite(site, Statuses.FAILED,
+            indexingManager.stopIndexing();
+            siteRepository.findAll().forEach(site ->
+                    indexingManager.interruptSite(site,
                             Messages.INTERRUPTED_INDEXING.getStringMessage())
             );
-            indexingManager.stopIndexing();
             return true;
         }
         return false;
     }
 
+    @Override
+    public boolean resumeIndexing() {
+        if (indexingManager.isIndexing()) {
+            return false;
+        }
+        return indexingManager.resumeIndexing();
+    }
+
     @Override
     public boolean indexPage(String url) {
         String siteUrl;
@@ -133,13 +164,14 @@ public class IndexingServiceImpl implements IndexingService {
         }
         Site site = optionalSite.get();
         Page page = new Page(site, path);
+        page.setGeneration(site.getGeneration());
         Optional<Page> optionalPage =
-                pageRepository.findBySiteAndPath(site, path);
+                pageRepository.findBySiteAndGenerationAndPath(site, site.getGeneration(), path);
         if (optionalPage.isPresent()) {
             page = optionalPage.get();
-            deletePageData(page);
+            indexingManager.deletePage(page);
         }
-        indexingManager.startSearchPagesTask(page);
+        indexingManager.indexPage(page);
         try {
             Thread.sleep(Constants.TIMEOUT_150_MS.getValue());
         } catch (InterruptedException e) {
@@ -148,22 +180,16 @@ public class IndexingServiceImpl implements IndexingService {
         return indexingManager.isIndexing();
     }
 
-    private void deletePageData(Page page) {
-        List<Index> indexes = indexRepository.findAllByPage(page);
-        indexRepository.deleteAll(indexes);
-        pageRepository.delete(page);
-    }
-
     @Override
     public StatisticsResponse getStatistics() {
+        List<Site> sites = siteRepository.findAll();
         TotalStatistics totalStatistics = new TotalStatistics(
-                (int) siteRepository.count(),
-                (int) pageRepository.count(),
-                (int) indexRepository.countDistinctLemma(),
+                sites.size(),
+                (int) sites.stream().mapToLong(statisticsManager::getPages).sum(),
+                (int) sites.stream().mapToLong(statisticsManager::getLemmas).sum(),
                 indexingManager.isIndexing()
         );
-        List<DetailedStatisticsItem> details = siteRepository
-                .findAll()
+        List<DetailedStatisticsItem> details = sites
                 .stream()
                 .map(site ->
                         new DetailedStatisticsItem(
@@ -172,8 +198,10 @@ public class IndexingServiceImpl implements IndexingService {
                                 getSiteStatus(site),
                                 site.getStatusTime().toEpochMilli(),
                                 site.getLastError() != null ? site.getLastError() : "none",
-                                (int) pageRepository.countBySite(site),
-                                (int) indexRepository.lemmaCountBySite(site)
+                                (int) statisticsManager.getPages(site),
+                                (int) statisticsManager.getLemmas(site),
+                                purgeManager.isPurging(site),
+                                purgeManager.getPurgedRows(site)
                         )
                 )
                 .toList();
@@ -184,7 +212,7 @@ public class IndexingServiceImpl implements IndexingService {
     }
 
     private String getSiteStatus(Site site) {
-        if (indexingManager.isIndexing()) {
+        if (indexingManager.isIndexing(site)) {
             return Statuses.INDEXING.name();
         }
         return site.getStatus();
@@ -194,167 +222,177 @@ public class IndexingServiceImpl implements IndexingService {
     public SearchResults getSearchResults(
             String query, String siteUrl, int offset, int limit
     ) {
-        if (!Objects.equals(this.query, query) ||
-                !Objects.equals(this.siteUrl, siteUrl) ||
-                searchResults == null) {
-            this.query = query;
-            this.siteUrl = siteUrl;
-            searchResults = new SearchResults(getSearchResults(query, siteUrl));
-        }
-        return searchResults.getPagedResults(offset, limit);
-    }
-
-    public List<SearchResult> getSearchResults(String query, String siteUrl) {
-        List<Meaning> words = LemmaProcessor.getLemmas(query, true);
-        return getPages(query, siteUrl)
-                .map(page -> getSearchResult(page, words))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .sorted()
-                .toList();
-    }
-
-    private Stream<Page> getPages(String query, String siteUrl) {
-        return LemmaProcessor
+        long deadline = System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(searchSettings.getDeadline());
+        List<String> words = LemmaProcessor
                 .getLemmas(
                         Patterns.REMOVE_PUNCTUATION_MARKS
                                 .getStringValue(query),
                         false
                 )
                 .stream()
-                .flatMap(lemma -> siteRepository.findByUrl(siteUrl)
-                        .map(site ->
-                                indexRepository.findByLemmaAndSiteOrderByRankDescLimit(
-                                        lemma.word(),
-                                        site,
-                                        Constants.MOST_RELEVANT_INDEXES_COUNT_LIMIT
-                                                .getValue()
-                                )
-                        )
-                        .orElse(
-                                indexRepository.findByLemmaOrderByRankDescLimit(
-                                        lemma.word(),
-                                        Constants.MOST_RELEVANT_INDEXES_COUNT_LIMIT
-                                                .getValue()
-                                )
-                        )
-                        .stream()
-                )
-                .map(Index::getPage)
-                .distinct();
+                .map(Meaning::word)
+                .toList();
+        List<List<String>> phrases = getPhrases(query);
+        RankingCache.Key key = RankingCache.key(words, phrases, siteUrl);
+        Ranking cached = rankingCache.get(key, offset + limit);
+        Ranking ranking = cached != null ? cached :
+                rank(key, words, phrases, siteUrl, offset + limit);
+        return new SearchResults(
+                metrics.timeSearchStage("snippets", () ->
+                        getSearchResults(query, ranking, offset, limit, deadline)),
+                ranking.count()
+        );
     }
 
-    private Optional<SearchResult> getSearchResult(Page page, List<Meaning> words) {
-        Document document = Jsoup.parse(page.getContent());
-        return document.body()
-                .getAllElements()
+    /**
+     * Pages whose snippets are not built by the deadline are returned
+     * without them, so the result pages stay consistent with the count.
+     */
+    private List<SearchResult> getSearchResults(String query, Ranking ranking,
+                                                int offset, int limit, long deadline) {
+        int end = Math.min(ranking.size(), offset + limit);
+        if (offset >= end) {
+            return List.of();
+        }
+        List<Meaning> words = LemmaProcessor.getLemmas(query, true);
+        List<Meaning> lemmas = LemmaProcessor.getLemmas(query, false);
+        Map<Integer, Page> pages = pageRepository
+                .findResultsByIdIn(
+                        IntStream.range(offset, end)
+                                .map(ranking::getPageId)
+                                .boxed()
+                                .toList()
+                )
                 .stream()
-                .map(this::getTextFromElement)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(text -> getSnippet(text, words))
-                .filter(Snippet::isNotBlank)
-                .max(Snippet::compareTo)
-                .map(snippet ->
-                        new SearchResult(
-                                page.getSite().getUrl(),
-                                page.getSite().getName(),
-                                page.getPath(),
-                                document.title(),
-                                snippet.toString(),
-                                (float) snippet.getWordMeaningsVarietyCount() / words.size() +
-                                        (float) snippet.getWordMeaningCount() / words.size() / 100
-                        )
-                );
+                .collect(Collectors.toMap(Page::getId, Function.identity()));
+        List<Integer> positions = IntStream.range(offset, end)
+                .filter(i -> pages.containsKey(ranking.getPageId(i)))
+                .boxed()
+                .toList();
+        List<String> snippets = searchExecutor.invokeAll(
+                positions.stream()
+                        .map(i -> (Callable<String>) () -> {
+                            Page page = pages.get(ranking.getPageId(i));
+                            contentStore.loadText(page);
+                            return SnippetBuilder.getSnippet(page, words, lemmas);
+                        })
+                        .toList(),
+                deadline
+        );
+        float maxScore = ranking.getMaxScore();
+        return IntStream.range(0, positions.size())
+                .mapToObj(i -> getSearchResult(
+                        pages.get(ranking.getPageId(positions.get(i))),
+                        maxScore > 0 ? ranking.getScore(positions.get(i)) / maxScore : 0,
+                        Objects.requireNonNullElse(snippets.get(i), "")
+                ))
+                .toList();
     }
 
-    private Optional<String> getTextFromElement(Element element) {
-        if (Patterns.HTML_TEXT_TAG_NAMES
-                .isMatches(element.nodeName())) {
-            return Optional.of(
-                    element.text()
-            );
+    private List<List<String>> getPhrases(String query) {
+        return Patterns.QUOTED_PHRASE.getRedexPattern()
+                .matcher(query)
+                .results()
+                .map(matchResult -> LemmaProcessor.getTokenLemmas(matchResult.group(1))
+                        .stream()
+                        .map(TokenLemma::lemma)
+                        .toList())
+                .filter(phrase -> phrase.size() > 1)
+                .toList();
+    }
+
+    /**
+     * Ranks at least the configured number of pages, so that the next
+     * pages of the result are served from the cache.
+     */
+    private Ranking rank(RankingCache.Key key, List<String> words,
+                         List<List<String>> phrases, String siteUrl, int end) {
+        Optional<Site> site = siteRepository.findByUrl(siteUrl);
+        Integer siteId = site.map(Site::getId).orElse(null);
+        int k = Math.max(end, searchSettings.getRankingDepth());
+        boolean positional = !phrases.isEmpty() || words.size() > 1;
+        int depth = !phrases.isEmpty() ? Math.max(k, searchSettings.getPhraseWindow()) :
+                positional ? Math.max(k, searchSettings.getProximityWindow()) : k;
+        boolean loaded = invertedIndex.isLoaded();
+        long version = invertedIndex.getVersion(siteId);
+        Ranking ranking = metrics.timeSearchStage("candidates", () -> {
+            List<String> lemmas = planQuery(words, site);
+            return loaded ?
+                    invertedIndex.rank(lemmas, siteId, depth) :
+                    rankByIndexes(lemmas, site, depth);
+        });
+        if (positional) {
+            Ranking candidates = ranking;
+            ranking = metrics.timeSearchStage("scoring", () ->
+                    positionalRanker.rerank(candidates, phrases, words, k));
+        }
+        if (loaded) {
+            rankingCache.put(key, siteId, version, ranking);
         }
-        return Optional.empty();
+        return ranking;
     }
 
-    private Snippet getSnippet(String text, List<Meaning> words) {
-        Snippet snippet = getPositions(text, words);
-        int prevPos = 0;
-        StringBuilder stringSnippetBuilder = new StringBuilder();
-        List<MeaningPositions> positions = snippet.getPositions();
-        for (int i = 0; i < positions.size(); i++) {
-            stringSnippetBuilder.append(
-                    modifyString(
-                            text,
-                            prevPos,
-                            positions.get(i),
-                            i == positions.size() - 1
-                    )
-            );
-            prevPos = positions.get(i).end();
+    private Ranking rankByIndexes(List<String> lemmas, Optional<Site> site, int k) {
+        if (lemmas.isEmpty()) {
+            return Ranking.EMPTY;
         }
-        snippet.setSnippet(stringSnippetBuilder.toString());
-        return snippet;
+        List<String> distinct = lemmas.stream().distinct().toList();
+        List<IndexCandidate> candidates = site
+                .map(s -> indexRepository.findCandidatesByLemmasAndSite(distinct, s, k))
+                .orElseGet(() -> indexRepository.findCandidatesByLemmas(distinct, k));
+        int count = candidates.size() < k ? candidates.size() : site
+                .map(s -> indexRepository.countCandidatesByLemmasAndSite(distinct, s))
+                .orElseGet(() -> indexRepository.countCandidatesByLemmas(distinct));
+        TopK top = new TopK(k);
+        candidates.forEach(candidate -> top.offer(
+                Postings.entry(candidate.getPageId(), candidate.getLemmaRank())));
+        return new Ranking(top.toArray(), count);
     }
 
-    private Snippet getPositions(String text, List<Meaning> words) {
-        Set<MeaningPositions> positions = new HashSet<>();
-        words
+    /**
+     * The rarest lemma is kept even if all of them are too common.
+     */
+    private List<String> planQuery(List<String> words, Optional<Site> site) {
+        if (words.isEmpty()) {
+            return words;
+        }
+        Map<String, Integer> frequencies = site
+                .map(s -> lemmaRepository.findAllBySiteAndGenerationAndLemmaIn(
+                        s, s.getGeneration(), words))
+                .orElseGet(() -> lemmaRepository.findSearchableByLemmaIn(words))
                 .stream()
-                .flatMap(meaning -> Patterns.SAMPLE.getRedexPattern(meaning.word())
-                        .matcher(text.toLowerCase())
-                        .results()
-                        .map(matchResult ->
-                                new MeaningPositions(
-                                        meaning.word(),
-                                        matchResult.start(),
-                                        matchResult.end(),
-                                        meaning.stopWord()
-                                )
+                .collect(
+                        Collectors.toMap(
+                                Lemma::getLemma,
+                                Lemma::getFrequency,
+                                Integer::sum
                         )
-                )
-                .sorted(MeaningPositions::compareTo)
-                .forEach(positions::add);
-        List<MeaningPositions> list = positions.stream()
-                .sorted(MeaningPositions::compareTo)
+                );
+        double maxFrequency = searchSettings.getMaxLemmaPageShare() *
+                site.map(statisticsManager::getPages)
+                        .orElseGet(() -> siteRepository.findAll()
+                                .stream()
+                                .mapToLong(statisticsManager::getPages)
+                                .sum());
+        List<String> lemmas = words.stream()
+                .sorted(Comparator.comparingInt(word ->
+                        frequencies.getOrDefault(word, 0)))
                 .toList();
-        Set<String> strings = new HashSet<>();
-        List<MeaningPositions> result = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
-            if (!list.get(i).stopWord() || i > 0  &&
-                    !list.get(i - 1).stopWord() && list.get(i).start() - list.get(i - 1).end() == 1 ||
-                    i < list.size() - 1 &&
-                    !list.get(i + 1).stopWord() && list.get(i + 1).start() - list.get(i).end() == 1) {
-                result.add(list.get(i));
-                strings.add(list.get(i).word());
-            }
-        }
-        return new Snippet(
-                "",
-                result,
-                strings.size()
-        );
+        List<String> planned = lemmas.stream()
+                .filter(word -> frequencies.getOrDefault(word, 0) <= maxFrequency)
+                .toList();
+        return planned.isEmpty() ? lemmas.stream().limit(1).toList() : planned;
     }
 
-    private String modifyString(String text, int prevPos,
-                                MeaningPositions meaningPositions, boolean isEndPart) {
-        String highlightedPart = Patterns.HIGHLIGHTED_STRING_PART
-                .getStringValue(text.substring(meaningPositions.start(), meaningPositions.end()));
-        String beginPart = "";
-        String endPart = "";
-        if (prevPos == 0 && meaningPositions.start() > 0) {
-            beginPart = Patterns.FIRST_STRING_PART
-                    .getStringValue(text.substring(prevPos, meaningPositions.start()));
-        }
-        if (prevPos > 0) {
-            beginPart = Patterns.MIDDLE_STRING_PART
-                    .getStringValue(text.substring(prevPos, meaningPositions.start()));
-        }
-        if (isEndPart && meaningPositions.end() < text.length()) {
-            endPart = Patterns.LAST_STRING_PART
-                    .getStringValue(text.substring(meaningPositions.end()));
-        }
-        return beginPart.concat(highlightedPart).concat(endPart);
+    private SearchResult getSearchResult(Page page, float relevance, String snippet) {
+        return new SearchResult(
+                page.getSite().getUrl(),
+                page.getSite().getName(),
+                page.getPath(),
+                TextExtractor.getTitle(page),
+                snippet,
+                relevance
+        );
     }
-}
\ No newline at end of file
+}
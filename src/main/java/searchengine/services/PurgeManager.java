@@ -0,0 +1,146 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.PurgeSettings;
+import searchengine.entities.Site;
+import searchengine.models.IdRange;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes the rows of unsearched site generations in small primary key
+ * ranges with pauses between them, so InnoDB locks few rows at a time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PurgeManager {
+
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final IndexRepository indexRepository;
+    private final LemmaRepository lemmaRepository;
+    private final ContentStore contentStore;
+    private final PurgeSettings purgeSettings;
+
+    private final Map<Integer, Progress> progress = new ConcurrentHashMap<>();
+    private final ExecutorService purgeExecutor =
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public void purgeGeneration(Site site, int generation) {
+        Progress siteProgress = getProgress(site);
+        siteProgress.pending.incrementAndGet();
+        purgeExecutor.execute(() -> {
+            try {
+                deleteGeneration(site, generation, siteProgress);
+            } finally {
+                siteProgress.pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Purges all generations except the searched one and the crawled one.
+     */
+    public void purgeStaleGenerations(Site site) {
+        int generation = site.getGeneration();
+        int crawlGeneration = site.getCrawlGeneration();
+        Progress siteProgress = getProgress(site);
+        siteProgress.pending.incrementAndGet();
+        purgeExecutor.execute(() -> {
+            try {
+                siteRepository.findStoredGenerations(site)
+                        .stream()
+                        .filter(stored -> stored != generation && stored != crawlGeneration)
+                        .forEach(stored -> deleteGeneration(site, stored, siteProgress));
+            } finally {
+                siteProgress.pending.decrementAndGet();
+            }
+        });
+    }
+
+    public boolean isPurging(Site site) {
+        Progress siteProgress = progress.get(site.getId());
+        return siteProgress != null && siteProgress.pending.get() > 0;
+    }
+
+    public long getPurgedRows(Site site) {
+        Progress siteProgress = progress.get(site.getId());
+        return siteProgress == null ? 0 : siteProgress.rows.get();
+    }
+
+    private Progress getProgress(Site site) {
+        return progress.computeIfAbsent(site.getId(), id -> new Progress());
+    }
+
+    /**
+     * Page bodies go before the rows, so a new crawl can not reuse the
+     * generation while its store is deleted. Indexes go before the pages
+     * they reference.
+     */
+    private void deleteGeneration(Site site, int generation, Progress siteProgress) {
+        try {
+            contentStore.dropGeneration(site.getId(), generation);
+            deleteRanges(indexRepository.findIdRangeBySiteAndGeneration(site, generation),
+                    (from, to) -> indexRepository.deleteBySiteAndGenerationAndIdBetween(
+                            site, generation, from, to), siteProgress);
+            deleteRanges(pageRepository.findIdRangeBySiteAndGeneration(site, generation),
+                    (from, to) -> pageRepository.deleteBySiteAndGenerationAndIdBetween(
+                            site, generation, from, to), siteProgress);
+            deleteRanges(lemmaRepository.findIdRangeBySiteAndGeneration(site, generation),
+                    (from, to) -> lemmaRepository.deleteBySiteAndGenerationAndIdBetween(
+                            site, generation, from, to), siteProgress);
+            log.info("Generation {} of {} purged", generation, site.getUrl());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Generation {} of {} is not purged", generation, site.getUrl(), e);
+        }
+    }
+
+    private void deleteRanges(IdRange range, RangeDelete delete, Progress siteProgress)
+            throws InterruptedException {
+        if (range == null || range.getMinId() == null) {
+            return;
+        }
+        int chunkSize = purgeSettings.getChunkSize();
+        for (long from = range.getMinId(); from <= range.getMaxId(); from += chunkSize) {
+            int to = (int) Math.min(from + chunkSize - 1, range.getMaxId());
+            int deleted = delete.apply((int) from, to);
+            if (deleted > 0) {
+                siteProgress.rows.addAndGet(deleted);
+                Thread.sleep(purgeSettings.getPause());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purgeExecutor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface RangeDelete {
+        int apply(int fromId, int toId);
+    }
+
+    private static class Progress {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong rows = new AtomicLong();
+    }
+}
@@ -0,0 +1,88 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool for search requests, separate from the indexing pool.
+ * When the queue is full the request thread does the work itself.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchExecutor {
+
+    private final SearchSettings searchSettings;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(
+                searchSettings.getThreads(),
+                searchSettings.getThreads(),
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(searchSettings.getQueueCapacity()),
+                Thread.ofPlatform().name("search-", 0).daemon().factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits for the tasks until the {@link System#nanoTime()} deadline.
+     * A task that failed or did not complete in time has a null result.
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks, long deadline) {
+        List<Future<T>> futures;
+        try {
+            futures = executor.invokeAll(
+                    tasks,
+                    Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.nCopies(tasks.size(), null);
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            results.add(getResult(future));
+        }
+        return results;
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Search task failed - {}", e.getCause().toString());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.config.StatisticsSettings;
+import searchengine.entities.Site;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live page and lemma counts of every site generation. The counts of the
+ * searched generations are saved to the sites table periodically and
+ * recounted from the tables once after startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StatisticsManager {
+
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final StatisticsSettings statisticsSettings;
+
+    private final Map<Key, Counts> counts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService saveTimer;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        siteRepository.findCounts().forEach(stored -> getCounts(stored.getSiteId(), stored.getGeneration())
+                .set(stored.getPages(), stored.getLemmas()));
+        saveTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        saveTimer.execute(this::reconcile);
+        int interval = statisticsSettings.getSaveInterval();
+        if (interval > 0) {
+            saveTimer.scheduleWithFixedDelay(this::save, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void addPages(Site site, int generation, int delta) {
+        getCounts(site.getId(), generation).pages.addAndGet(delta);
+    }
+
+    public void addLemmas(Site site, int generation, int delta) {
+        getCounts(site.getId(), generation).lemmas.addAndGet(delta);
+    }
+
+    public long getPages(Site site) {
+        Counts siteCounts = counts.get(new Key(site.getId(), site.getGeneration()));
+        return siteCounts == null ? 0 : siteCounts.pages.get();
+    }
+
+    public long getLemmas(Site site) {
+        Counts siteCounts = counts.get(new Key(site.getId(), site.getGeneration()));
+        return siteCounts == null ? 0 : siteCounts.lemmas.get();
+    }
+
+    public void dropGeneration(Site site, int generation) {
+        counts.remove(new Key(site.getId(), generation));
+    }
+
+    private void reconcile() {
+        try {
+            List<Site> sites = siteRepository.findAll();
+            for (Site site : sites) {
+                for (int generation : Set.of(site.getGeneration(), site.getCrawlGeneration())) {
+                    getCounts(site.getId(), generation).set(
+                            pageRepository.countBySiteAndGeneration(site, generation),
+                            lemmaRepository.countBySiteAndGeneration(site, generation)
+                    );
+                }
+            }
+            log.info("Statistics reconciled for {} sites", sites.size());
+            save();
+        } catch (RuntimeException e) {
+            log.error("Statistics are not reconciled - {}", e.getMessage());
+        }
+    }
+
+    private void save() {
+        try {
+            counts.forEach((key, siteCounts) -> siteRepository.updateCounts(
+                    key.siteId(), key.generation(), siteCounts.pages.get(), siteCounts.lemmas.get()
+            ));
+        } catch (RuntimeException e) {
+            log.error("Statistics are not saved - {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (saveTimer != null) {
+            saveTimer.shutdownNow();
+            save();
+        }
+    }
+
+    private Counts getCounts(int siteId, int generation) {
+        return counts.computeIfAbsent(new Key(siteId, generation), key -> new Counts());
+    }
+
+    private record Key(int siteId, int generation) {
+    }
+
+    private static class Counts {
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong lemmas = new AtomicLong();
+
+        void set(long pageCount, long lemmaCount) {
+            pages.set(pageCount);
+            lemmas.set(lemmaCount);
+        }
+    }
+}
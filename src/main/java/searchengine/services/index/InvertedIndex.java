@@ -0,0 +1,238 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.enums.Constants;
+import searchengine.models.IndexEntry;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.SiteRepository;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Per site, per lemma postings lists, loaded from the indexes table at
+ * startup. A full crawl builds the next generation in a shadow index.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvertedIndex {
+
+    private final IndexRepository indexRepository;
+    private final SiteRepository siteRepository;
+
+    private final Map<Integer, Map<String, Postings>> sites = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Postings>> shadows = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> generations = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> siteVersions = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        Thread loader = new Thread(this::load, "inverted-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * A failed load is retried from the last loaded entry. The postings
+     * keep one rank per page, so a batch read twice does no harm.
+     */
+    private void load() {
+        int lastId = 0;
+        long count = 0;
+        while (!loaded) {
+            try {
+                siteRepository.findAll().forEach(site ->
+                        generations.putIfAbsent(site.getId(), site.getGeneration())
+                );
+                int batchSize = Constants.INDEX_LOADING_BATCH_SIZE.getValue();
+                List<IndexEntry> entries;
+                do {
+                    entries = indexRepository.findEntriesAfterId(lastId, batchSize);
+                    for (IndexEntry entry : entries) {
+                        getPostings(getIndexes(entry.getSiteId(), entry.getGeneration()),
+                                entry.getSiteId(), entry.getLemma())
+                                .add(entry.getPageId(), entry.getLemmaRank());
+                        lastId = entry.getId();
+                    }
+                    count += entries.size();
+                } while (entries.size() == batchSize);
+                loaded = true;
+                log.info("Inverted index loaded: {} entries", count);
+            } catch (RuntimeException e) {
+                log.error("Inverted index is not loaded after {} entries, retrying", count, e);
+                try {
+                    Thread.sleep(Constants.INDEX_LOADING_RETRY_MS.getValue());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the number of changes made to the searched index of the
+     * site, or to the whole index if the site is null.
+     */
+    public long getVersion(@Nullable Integer siteId) {
+        if (siteId == null) {
+            return version.get();
+        }
+        AtomicLong siteVersion = siteVersions.get(siteId);
+        return siteVersion == null ? 0 : siteVersion.get();
+    }
+
+    /**
+     * Pages of other generations go to the shadow index of the site.
+     */
+    public void setGeneration(int siteId, int generation) {
+        generations.put(siteId, generation);
+    }
+
+    /**
+     * Returns the number of lemmas no other page of the generation has.
+     */
+    public int addPage(int siteId, int generation, int pageId, Map<String, Float> lemmaRanks) {
+        Map<Integer, Map<String, Postings>> indexes = getIndexes(siteId, generation);
+        int added = 0;
+        for (Map.Entry<String, Float> entry : lemmaRanks.entrySet()) {
+            if (getPostings(indexes, siteId, entry.getKey()).add(pageId, entry.getValue())) {
+                added++;
+            }
+        }
+        if (indexes == sites) {
+            nextVersion(siteId);
+        }
+        return added;
+    }
+
+    /**
+     * Returns the number of lemmas no other page of the generation has.
+     */
+    public int removePage(int siteId, int generation, int pageId, Collection<String> lemmas) {
+        Map<Integer, Map<String, Postings>> indexes = getIndexes(siteId, generation);
+        Map<String, Postings> lemmaPostings = indexes.get(siteId);
+        if (lemmaPostings == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (String lemma : lemmas) {
+            Postings postings = lemmaPostings.get(lemma);
+            if (postings != null && postings.remove(pageId)) {
+                removed++;
+            }
+        }
+        if (indexes == sites) {
+            nextVersion(siteId);
+        }
+        return removed;
+    }
+
+    public void activate(int siteId, int generation) {
+        Map<String, Postings> shadow = shadows.remove(siteId);
+        sites.put(siteId, shadow != null ? shadow : new ConcurrentHashMap<>());
+        generations.put(siteId, generation);
+        nextVersion(siteId);
+    }
+
+    /**
+     * Drops the shadow index of a crawl that has not completed.
+     */
+    public void discard(int siteId) {
+        shadows.remove(siteId);
+    }
+
+    private Map<Integer, Map<String, Postings>> getIndexes(int siteId, int generation) {
+        return generations.computeIfAbsent(siteId, id -> generation) == generation ?
+                sites : shadows;
+    }
+
+    private void nextVersion(int siteId) {
+        siteVersions
+                .computeIfAbsent(siteId, id -> new AtomicLong())
+                .incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Keeps the best {@code k} pages with all the lemmas by the sum of
+     * the lemma ranks. Once a candidate can not beat the weakest of them
+     * (MaxScore), the remaining candidates are only counted.
+     */
+    public Ranking rank(List<String> lemmas, @Nullable Integer siteId, int k) {
+        if (lemmas.isEmpty()) {
+            return Ranking.EMPTY;
+        }
+        TopK top = new TopK(k);
+        int count = (siteId == null ? sites.values().stream() :
+                Stream.ofNullable(sites.get(siteId)))
+                .mapToInt(lemmaPostings -> rank(lemmaPostings, lemmas, top))
+                .sum();
+        return new Ranking(top.toArray(), count);
+    }
+
+    private int rank(Map<String, Postings> lemmaPostings,
+                     List<String> lemmas, TopK top) {
+        List<Postings> list = new ArrayList<>();
+        for (String lemma : lemmas) {
+            Postings postings = lemmaPostings.get(lemma);
+            if (postings == null) {
+                return 0;
+            }
+            list.add(postings);
+        }
+        list.sort(Comparator.comparingInt(Postings::size));
+        float restBound = 0;
+        for (int i = 1; i < list.size(); i++) {
+            restBound += list.get(i).maxRank();
+        }
+        Postings rarest = list.get(0);
+        long[] candidates = rarest.top(rarest.size());
+        int count = 0;
+        boolean pruned = false;
+        for (int c = 0; c < candidates.length; c++) {
+            int pageId = Postings.pageId(candidates[c]);
+            float score = Postings.rank(candidates[c]);
+            pruned = pruned || top.isBeyondReach(score + restBound);
+            if (pruned && list.size() == 1) {
+                return count + candidates.length - c;
+            }
+            for (int i = 1; i < list.size() && score >= 0; i++) {
+                float rank = list.get(i).getRank(pageId);
+                score = rank < 0 ? -1 : score + rank;
+            }
+            if (score >= 0) {
+                count++;
+                if (!pruned) {
+                    top.offer(Postings.entry(pageId, score));
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Postings getPostings(Map<Integer, Map<String, Postings>> indexes,
+                                        int siteId, String lemma) {
+        return indexes
+                .computeIfAbsent(siteId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(lemma, l -> new Postings());
+    }
+}
@@ -0,0 +1,139 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.models.PositionsEntry;
+import searchengine.repositories.IndexRepository;
+import searchengine.services.utils.VarInts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Drops the pages without every quoted phrase and boosts the pages
+ * whose query lemmas occur close together.
+ */
+@Component
+@RequiredArgsConstructor
+public class PositionalRanker {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final IndexRepository indexRepository;
+    private final SearchSettings searchSettings;
+
+    /**
+     * If the ranking holds only the best of the pages with the lemmas,
+     * the number of pages with the phrases is extrapolated to all of them.
+     */
+    public Ranking rerank(Ranking ranking, List<List<String>> phrases,
+                          List<String> lemmas, int k) {
+        Set<String> queryLemmas = new LinkedHashSet<>(lemmas);
+        phrases.forEach(queryLemmas::addAll);
+        TopK top = new TopK(k);
+        int count = 0;
+        for (int from = 0; from < ranking.size(); from += BATCH_SIZE) {
+            int to = Math.min(ranking.size(), from + BATCH_SIZE);
+            Map<Integer, Map<String, int[]>> positions =
+                    findPositions(ranking, from, to, queryLemmas);
+            for (int i = from; i < to; i++) {
+                Map<String, int[]> pagePositions =
+                        positions.getOrDefault(ranking.getPageId(i), Map.of());
+                if (!phrases.stream().allMatch(phrase -> containsPhrase(pagePositions, phrase))) {
+                    continue;
+                }
+                count++;
+                top.offer(Postings.entry(
+                        ranking.getPageId(i),
+                        ranking.getScore(i) * getProximityBoost(pagePositions, lemmas)
+                ));
+            }
+        }
+        if (phrases.isEmpty()) {
+            return new Ranking(top.toArray(), ranking.count());
+        }
+        long estimate = ranking.size() == 0 ? 0 : (long) count * ranking.count() / ranking.size();
+        return new Ranking(top.toArray(), (int) Math.max(count, estimate));
+    }
+
+    private Map<Integer, Map<String, int[]>> findPositions(Ranking ranking, int from, int to,
+                                                           Set<String> lemmas) {
+        Map<Integer, Map<String, int[]>> positions = new HashMap<>();
+        List<PositionsEntry> entries = indexRepository.findPositions(
+                IntStream.range(from, to)
+                        .map(ranking::getPageId)
+                        .boxed()
+                        .toList(),
+                lemmas
+        );
+        for (PositionsEntry entry : entries) {
+            if (entry.getPositions() != null) {
+                positions
+                        .computeIfAbsent(entry.getPageId(), pageId -> new HashMap<>())
+                        .put(entry.getLemma(), VarInts.decodeDeltas(entry.getPositions()));
+            }
+        }
+        return positions;
+    }
+
+    private static boolean containsPhrase(Map<String, int[]> positions, List<String> phrase) {
+        int[][] lists = new int[phrase.size()][];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = positions.get(phrase.get(i));
+            if (lists[i] == null) {
+                return false;
+            }
+        }
+        for (int start : lists[0]) {
+            int i = 1;
+            while (i < lists.length && Arrays.binarySearch(lists[i], start + i) >= 0) {
+                i++;
+            }
+            if (i == lists.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a factor from 1 to 1 + proximity weight by the shortest
+     * span of ordinals that holds every lemma.
+     */
+    private float getProximityBoost(Map<String, int[]> positions, List<String> lemmas) {
+        if (lemmas.size() < 2) {
+            return 1;
+        }
+        int[][] lists = new int[lemmas.size()][];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = positions.get(lemmas.get(i));
+            if (lists[i] == null || lists[i].length == 0) {
+                return 1;
+            }
+        }
+        int[] heads = new int[lists.length];
+        int span = Integer.MAX_VALUE;
+        while (true) {
+            int min = 0;
+            int max = lists[0][heads[0]];
+            for (int i = 1; i < lists.length; i++) {
+                int ordinal = lists[i][heads[i]];
+                if (ordinal < lists[min][heads[min]]) {
+                    min = i;
+                }
+                max = Math.max(max, ordinal);
+            }
+            span = Math.min(span, max - lists[min][heads[min]]);
+            if (++heads[min] == lists[min].length) {
+                break;
+            }
+        }
+        return 1 + searchSettings.getProximityWeight() * (lists.length - 1) / Math.max(span, 1);
+    }
+}
@@ -0,0 +1,230 @@
+package searchengine.services.index;
+
+import java.util.Arrays;
+
+/**
+ * Page ids with their ranks packed into longs, sorted by rank and by page
+ * id. New entries are buffered until the buffer outgrows a size that
+ * depends on the list. Reads scan the buffer until then.
+ */
+public class Postings {
+
+    private static final int MIN_PENDING = 16;
+    private static final int MAX_PENDING = 256;
+    private static final long[] EMPTY = new long[0];
+
+    private long[] byRank = EMPTY;
+    private long[] byPage = EMPTY;
+    private long[] pending = new long[MIN_PENDING];
+    private int pendingSize;
+
+    /**
+     * Returns true if the list was empty before.
+     */
+    public synchronized boolean add(int pageId, float rank) {
+        boolean wasEmpty = isEmpty();
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        pending[pendingSize++] = pageMajor(pageId, rank);
+        if (pendingSize >= Math.min(Math.max(byPage.length >> 4, MIN_PENDING), MAX_PENDING)) {
+            merge();
+        }
+        return wasEmpty;
+    }
+
+    /**
+     * Returns true if the list has become empty.
+     */
+    public synchronized boolean remove(int pageId) {
+        merge();
+        int position = findPosition(byPage, pageId);
+        if (position < 0) {
+            return false;
+        }
+        long entry = swap(byPage[position]);
+        byPage = removeAt(byPage, position);
+        byRank = removeAt(byRank, Arrays.binarySearch(byRank, entry));
+        return byPage.length == 0;
+    }
+
+    public synchronized int size() {
+        int size = byPage.length;
+        for (long entry : latestPending()) {
+            if (findPosition(byPage, (int) (entry >>> 32)) < 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendingSize == 0 && byPage.length == 0;
+    }
+
+    /**
+     * Returns up to {@code limit} entries with the highest ranks,
+     * packed rank-major and ordered by rank descending.
+     */
+    public synchronized long[] top(int limit) {
+        long[] added = latestPending();
+        long[] addedByRank = toRankMajor(added);
+        long[] top = new long[Math.min(limit, byRank.length + added.length)];
+        int count = 0;
+        int i = byRank.length - 1;
+        int j = addedByRank.length - 1;
+        while (count < top.length && (i >= 0 || j >= 0)) {
+            if (i >= 0 && findPosition(added, pageId(byRank[i])) >= 0) {
+                i--;
+            } else if (j < 0 || i >= 0 && byRank[i] > addedByRank[j]) {
+                top[count++] = byRank[i--];
+            } else {
+                top[count++] = addedByRank[j--];
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    public synchronized float maxRank() {
+        long[] top = top(1);
+        return top.length == 0 ? 0 : rank(top[0]);
+    }
+
+    /**
+     * Returns the rank of the page or a negative value if the lemma
+     * does not occur on it.
+     */
+    public synchronized float getRank(int pageId) {
+        for (int i = pendingSize - 1; i >= 0; i--) {
+            if ((int) (pending[i] >>> 32) == pageId) {
+                return rank(swap(pending[i]));
+            }
+        }
+        int position = findPosition(byPage, pageId);
+        return position < 0 ? -1 : rank(swap(byPage[position]));
+    }
+
+    /**
+     * Packs the page id and a non-negative score rank-major, so that
+     * sorted entries are ordered by score.
+     */
+    public static long entry(int pageId, float score) {
+        return rankMajor(pageId, score);
+    }
+
+    public static int pageId(long entry) {
+        return (int) entry;
+    }
+
+    public static float rank(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    private static long rankMajor(int pageId, float rank) {
+        return (long) Float.floatToIntBits(rank) << 32 | Integer.toUnsignedLong(pageId);
+    }
+
+    private static long pageMajor(int pageId, float rank) {
+        return (long) pageId << 32 | Integer.toUnsignedLong(Float.floatToIntBits(rank));
+    }
+
+    private static long swap(long entry) {
+        return entry << 32 | entry >>> 32;
+    }
+
+    private static int findPosition(long[] byPage, int pageId) {
+        int position = Arrays.binarySearch(byPage, (long) pageId << 32);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        if (position < byPage.length && (int) (byPage[position] >>> 32) == pageId) {
+            return position;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the pending entries sorted by page id, only the last one
+     * of a page added twice.
+     */
+    private long[] latestPending() {
+        if (pendingSize == 0) {
+            return EMPTY;
+        }
+        long[] order = new long[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            order[i] = pending[i] & 0xFFFFFFFF00000000L | i;
+        }
+        Arrays.sort(order);
+        long[] latest = new long[pendingSize];
+        int size = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i + 1 == order.length || order[i + 1] >>> 32 != order[i] >>> 32) {
+                latest[size++] = pending[(int) order[i]];
+            }
+        }
+        return size == latest.length ? latest : Arrays.copyOf(latest, size);
+    }
+
+    private void merge() {
+        if (pendingSize == 0) {
+            return;
+        }
+        long[] added = latestPending();
+        long[] merged = new long[byPage.length + added.length];
+        long[] replaced = new long[Math.min(byPage.length, added.length)];
+        int size = 0;
+        int replacedSize = 0;
+        int i = 0;
+        int j = 0;
+        while (i < byPage.length || j < added.length) {
+            if (j == added.length || i < byPage.length && byPage[i] >>> 32 < added[j] >>> 32) {
+                merged[size++] = byPage[i++];
+            } else {
+                if (i < byPage.length && byPage[i] >>> 32 == added[j] >>> 32) {
+                    replaced[replacedSize++] = swap(byPage[i++]);
+                }
+                merged[size++] = added[j++];
+            }
+        }
+        Arrays.sort(replaced, 0, replacedSize);
+        long[] addedByRank = toRankMajor(added);
+        long[] ranked = new long[size];
+        int count = 0;
+        int r = 0;
+        j = 0;
+        for (long entry : byRank) {
+            if (r < replacedSize && replaced[r] == entry) {
+                r++;
+                continue;
+            }
+            while (j < addedByRank.length && addedByRank[j] < entry) {
+                ranked[count++] = addedByRank[j++];
+            }
+            ranked[count++] = entry;
+        }
+        while (j < addedByRank.length) {
+            ranked[count++] = addedByRank[j++];
+        }
+        byPage = size == merged.length ? merged : Arrays.copyOf(merged, size);
+        byRank = ranked;
+        pending = new long[MIN_PENDING];
+        pendingSize = 0;
+    }
+
+    private static long[] toRankMajor(long[] byPage) {
+        long[] byRank = new long[byPage.length];
+        for (int i = 0; i < byPage.length; i++) {
+            byRank[i] = swap(byPage[i]);
+        }
+        Arrays.sort(byRank);
+        return byRank;
+    }
+
+    private static long[] removeAt(long[] array, int position) {
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, result.length - position);
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package searchengine.services.index;
+
+/**
+ * The best pages as packed postings entries ordered by score descending
+ * and the number of all the pages that match the query.
+ */
+public record Ranking(long[] entries, int count) {
+
+    public static final Ranking EMPTY = new Ranking(new long[0], 0);
+
+    public int size() {
+        return entries.length;
+    }
+
+    public int getPageId(int position) {
+        return Postings.pageId(entries[position]);
+    }
+
+    public float getScore(int position) {
+        return Postings.rank(entries[position]);
+    }
+
+    public float getMaxScore() {
+        return entries.length == 0 ? 0 : getScore(0);
+    }
+
+    /**
+     * Returns true if the ranking holds the results up to {@code end}.
+     */
+    public boolean covers(int end) {
+        return entries.length >= Math.min(end, count);
+    }
+}
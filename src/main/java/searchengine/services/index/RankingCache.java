@@ -0,0 +1,77 @@
+package searchengine.services.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Rankings of recent queries, keyed by the sorted lemmas, the phrases
+ * and the site. The cache is bounded by the memory of its entries.
+ * An entry ranked before the index of its site changed is not returned.
+ */
+@Component
+public class RankingCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final InvertedIndex invertedIndex;
+    private final Cache<Key, Entry> cache;
+
+    public RankingCache(InvertedIndex invertedIndex, SearchSettings searchSettings) {
+        this.invertedIndex = invertedIndex;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(searchSettings.getRankingCacheBytes())
+                .weigher((Key key, Entry entry) -> weigh(key, entry))
+                .recordStats()
+                .build();
+    }
+
+    public static Key key(Collection<String> lemmas, List<List<String>> phrases,
+                          @Nullable String siteUrl) {
+        return new Key(List.copyOf(new TreeSet<>(lemmas)), phrases, siteUrl);
+    }
+
+    /**
+     * Returns null unless the ranking is up to date and covers {@code end}.
+     */
+    @Nullable
+    public Ranking get(Key key, int end) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || !entry.ranking().covers(end)) {
+            return null;
+        }
+        if (entry.version() != invertedIndex.getVersion(entry.siteId())) {
+            cache.asMap().remove(key, entry);
+            return null;
+        }
+        return entry.ranking();
+    }
+
+    public void put(Key key, @Nullable Integer siteId, long version, Ranking ranking) {
+        cache.put(key, new Entry(siteId, version, ranking));
+    }
+
+    public Cache<Key, Entry> getCache() {
+        return cache;
+    }
+
+    private static int weigh(Key key, Entry entry) {
+        long bytes = ENTRY_OVERHEAD_BYTES +
+                (long) entry.ranking().size() * Long.BYTES +
+                key.lemmas().stream().mapToLong(lemma -> 2L * lemma.length()).sum();
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    public record Key(List<String> lemmas, List<List<String>> phrases,
+                      @Nullable String siteUrl) {
+    }
+
+    public record Entry(@Nullable Integer siteId, long version, Ranking ranking) {
+    }
+}
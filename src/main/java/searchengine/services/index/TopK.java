@@ -0,0 +1,82 @@
+package searchengine.services.index;
+
+import java.util.Arrays;
+
+/**
+ * Bounded min-heap of the {@code k} greatest packed postings entries.
+ */
+public class TopK {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private long[] heap;
+    private int size;
+
+    public TopK(int k) {
+        this.k = Math.max(0, k);
+        heap = new long[Math.min(this.k, INITIAL_CAPACITY)];
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    public boolean isBeyondReach(float score) {
+        return isFull() && (k == 0 || score <= Postings.rank(heap[0]));
+    }
+
+    public void offer(long entry) {
+        if (size < k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(k, 2L * size));
+            }
+            heap[size] = entry;
+            siftUp(size++);
+        } else if (k > 0 && entry > heap[0]) {
+            heap[0] = entry;
+            siftDown(0);
+        }
+    }
+
+    public long[] toArray() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long entry = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = entry;
+        }
+        return sorted;
+    }
+
+    private void siftUp(int position) {
+        long entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = entry;
+    }
+
+    private void siftDown(int position) {
+        long entry = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (entry <= heap[child]) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = entry;
+    }
+}
@@ -2,16 +2,19 @@ package searchengine.services.tasks;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Element;
-import searchengine.entities.Index;
 import searchengine.entities.Page;
 import searchengine.enums.Patterns;
-import searchengine.models.Meaning;
+import searchengine.models.PageIndexes;
+import searchengine.models.TokenLemma;
 import searchengine.services.IndexingManager;
+import searchengine.services.utils.ForwardIndex;
 import searchengine.services.utils.LemmaProcessor;
+import searchengine.services.utils.TextExtractor;
+import searchengine.services.utils.VarInts;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
@@ -23,63 +26,73 @@ public class IndexingPagesTask implements Runnable {
 
     @Override
     public void run() {
-        Map<String, Integer> lemmas = Jsoup.parse(page.getContent())
-                .body().getAllElements()
-                .stream()
-                .map(this::getTextFromElement)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .flatMap(text -> LemmaProcessor
-                        .getLemmas(text, false)
-                        .stream()
-                        .collect(
-                                Collectors.toMap(
-                                        Meaning::word,
-                                        lemma -> 1,
-                                        Integer::sum
-                                )
-                        )
-                        .entrySet()
-                        .stream()
-                )
-                .collect(
-                        Collectors.toMap(
-                                Map.Entry::getKey,
-                                Map.Entry::getValue,
-                                Integer::sum
-                        )
-                );
-        saveIndexes(lemmas);
+        indexingManager.saveIndexes(
+                indexingManager.getMetrics().timeLemmatization(() -> buildIndexes(page))
+        );
     }
 
-    private Optional<String> getTextFromElement(Element element) {
-        if (Patterns.HTML_TEXT_TAG_NAMES
-                .isMatches(element.nodeName())) {
-            return Optional.of(
-                    element.text()
-            );
+    /**
+     * Ordinals skip one between text blocks, so a phrase is never matched
+     * across two blocks.
+     */
+    public static PageIndexes buildIndexes(Page page) {
+        Map<String, Integer> lemmas = new HashMap<>();
+        Map<String, List<Integer>> positions = new HashMap<>();
+        List<TokenLemma> tokens = new ArrayList<>();
+        int offset = 0;
+        int ordinal = 0;
+        for (String text : TextExtractor.getTextBlocks(page)) {
+            List<TokenLemma> blockTokens = LemmaProcessor.getTokenLemmas(text);
+            blockTokens.stream()
+                    .map(TokenLemma::lemma)
+                    .distinct()
+                    .forEach(lemma -> lemmas.merge(lemma, 1, Integer::sum));
+            for (TokenLemma token : blockTokens) {
+                tokens.add(token.shift(offset));
+                positions
+                        .computeIfAbsent(token.lemma(), lemma -> new ArrayList<>())
+                        .add(ordinal++);
+            }
+            offset += text.length() + Patterns.TEXT_BLOCK_SEPARATOR.getStringValue().length();
+            ordinal++;
+        }
+        if (page.getText() != null) {
+            page.setForwardIndex(ForwardIndex.encode(tokens));
         }
-        return Optional.empty();
+        return getPageIndexes(page, lemmas, positions);
     }
 
-    private void saveIndexes(Map<String, Integer> lemmas) {
+    private static PageIndexes getPageIndexes(Page page,
+                                              Map<String, Integer> lemmas,
+                                              Map<String, List<Integer>> positions) {
         int lemmasNum = lemmas.values().stream()
                 .reduce(Integer::sum)
                 .orElse(1);
-        indexingManager
-                .getIndexRepository()
-                .saveAllAndFlush(
-                        lemmas
-                                .entrySet()
-                                .stream()
-                                .map(entry ->
-                                        new Index(
-                                                page,
-                                                entry.getKey(),
-                                                (float) entry.getValue() / lemmasNum
+        return new PageIndexes(
+                page,
+                lemmas
+                        .entrySet()
+                        .stream()
+                        .collect(
+                                Collectors.toMap(
+                                        Map.Entry::getKey,
+                                        entry -> (float) entry.getValue() / lemmasNum
+                                )
+                        ),
+                positions
+                        .entrySet()
+                        .stream()
+                        .collect(
+                                Collectors.toMap(
+                                        Map.Entry::getKey,
+                                        entry -> VarInts.encodeDeltas(
+                                                entry.getValue()
+                                                        .stream()
+                                                        .mapToInt(Integer::intValue)
+                                                        .toArray()
                                         )
                                 )
-                                .toList()
+                        )
         );
     }
 }
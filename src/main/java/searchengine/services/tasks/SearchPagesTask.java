@@ -3,16 +3,18 @@ package searchengine.services.tasks;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import searchengine.entities.Page;
 import searchengine.entities.Site;
-import searchengine.enums.Constants;
 import searchengine.enums.Patterns;
 import searchengine.enums.Statuses;
 import searchengine.services.IndexingManager;
+import searchengine.services.utils.ContentHasher;
+import searchengine.services.utils.TextExtractor;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 
@@ -20,32 +22,70 @@ import java.time.temporal.ChronoUnit;
 @Slf4j
 public class SearchPagesTask implements Runnable {
 
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_GONE = 410;
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+
     private final IndexingManager indexingManager;
     private Page page;
+    private final int depth;
 
+    /**
+     * The links of a stored page are followed even if the fetch fails
+     * with a transient error, so its subpages are not deleted as unseen.
+     */
     @Override
     public void run() {
         Site site = page.getSite();
         String url = site.getUrl();
         String path = page.getPath();
+        Page stored = null;
         try {
-            Thread.sleep(Constants.TIMEOUT_150_MS.getValue());
-            Connection.Response response = Jsoup
-                    .connect(url + path)
-                    .execute();
+            stored = indexingManager.findStoredPage(page).orElse(null);
+            Connection.Response response = indexingManager
+                    .fetch(site, path, stored);
+            if (stored != null && response.statusCode() == HTTP_NOT_MODIFIED) {
+                indexingManager.keepPage(stored, stored);
+                findSubpages(Jsoup.parse(stored.getContent()));
+                updateSiteStatus(Statuses.INDEXING, null);
+                return;
+            }
             page.setCode(response.statusCode());
             Document document = response.parse();
-            page.setContent(document.html());
-            indexingManager.addPage(page);
+            page.setContent(response.body());
+            page.setTitle(document.title());
+            page.setText(TextExtractor.extractText(document.body()));
+            page.setEtag(response.header(ETAG));
+            page.setLastModified(response.header(LAST_MODIFIED));
+            page.setContentHash(ContentHasher.hash(response.bodyAsBytes()));
+            if (stored != null && page.getContentHash().equals(stored.getContentHash())) {
+                indexingManager.keepPage(stored, page);
+            } else {
+                page.setReplaced(stored);
+                indexingManager.savePage(page);
+            }
             findSubpages(document);
             updateSiteStatus(Statuses.INDEXING, null);
         } catch (Exception e) {
+            if (isGone(e)) {
+                indexingManager.markGone(page);
+            } else if (stored != null) {
+                findSubpages(Jsoup.parse(stored.getContent()));
+            }
             String errorMessage = url + path + " - " + e.getMessage();
             updateSiteStatus(Statuses.FAILED, errorMessage);
             log.warn(errorMessage);
         }
     }
 
+    private static boolean isGone(Exception e) {
+        return e instanceof HttpStatusException statusException &&
+                (statusException.getStatusCode() == HTTP_NOT_FOUND ||
+                        statusException.getStatusCode() == HTTP_GONE);
+    }
+
     private void updateSiteStatus(Statuses status, String lastError) {
         Site site = page.getSite();
         site.setStatus(status);
@@ -67,16 +107,16 @@ public class SearchPagesTask implements Runnable {
                     Patterns.HTML_TAG_ATTRIBUTE_HREF.getStringValue()
             );
             Page newPage = new Page(site, newPath);
+            newPage.setGeneration(page.getGeneration());
             if (isAcceptablePage(path, newPage)) {
-                indexingManager.startSearchPagesTask(newPage);
+                indexingManager.enqueuePage(newPage, depth + 1);
             }
         }
     }
 
     private boolean isAcceptablePage(String root, Page page) {
         String path = page.getPath();
-        return !indexingManager.isPagePresent(page) &&
-                path.startsWith(root) &&
+        return path.startsWith(root) &&
                 path.length() != root.length() &&
                 !Patterns.NOT_RELEVANT_PAGE_PATH.isMatches(path);
     }
@@ -0,0 +1,88 @@
+package searchengine.services.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue drained by writer threads in batches of up to
+ * {@code batchSize} items or whatever arrived within {@code flushInterval}.
+ */
+@Slf4j
+public class BatchWriter<T> {
+
+    private final BlockingQueue<T> queue;
+    private final Consumer<List<T>> writer;
+    private final int batchSize;
+    private final long flushInterval;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public BatchWriter(Consumer<List<T>> writer, int batchSize,
+                       long flushInterval, int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+    }
+
+    public void start(String name, int threads) {
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::run, name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void submit(T item) {
+        pending.incrementAndGet();
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEmpty() {
+        return pending.get() == 0;
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<T> batch = new ArrayList<>(batchSize);
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                writer.accept(batch);
+            } catch (RuntimeException e) {
+                log.warn("Batch of {} items is not written - {}", batch.size(), e.getMessage());
+            } finally {
+                pending.addAndGet(-batch.size());
+            }
+        }
+    }
+
+    private void fillBatch(List<T> batch) throws InterruptedException {
+        T item = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        while (item != null) {
+            batch.add(item);
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize) {
+                return;
+            }
+            item = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
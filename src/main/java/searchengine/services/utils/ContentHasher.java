@@ -0,0 +1,20 @@
+package searchengine.services.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class ContentHasher {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    public static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance(ALGORITHM).digest(content)
+            );
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
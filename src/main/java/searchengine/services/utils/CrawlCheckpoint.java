@@ -0,0 +1,97 @@
+package searchengine.services.utils;
+
+import searchengine.entities.Site;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * State of the running crawls: the sites with their saved page counts,
+ * the gone paths, the seen URLs and the frontier. The seen URLs go before
+ * the frontier, so every seen URL is either fetched or on the frontier.
+ */
+public class CrawlCheckpoint {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path path;
+
+    public CrawlCheckpoint(Path path) {
+        this.path = path;
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    public synchronized void save(Collection<CrawlTracker.SiteCrawl> crawls,
+                                  Collection<String> gonePaths,
+                                  UrlSeenSet seenUrls,
+                                  CrawlFrontier frontier) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(crawls.size());
+            for (CrawlTracker.SiteCrawl crawl : crawls) {
+                out.writeInt(crawl.getSite().getId());
+                out.writeInt(crawl.getPages());
+            }
+            List<String> gone = List.copyOf(gonePaths);
+            out.writeInt(gone.size());
+            for (String gonePath : gone) {
+                out.writeUTF(gonePath);
+            }
+            seenUrls.write(out);
+            frontier.write(out);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * {@code restoreSite} gets every site id with its page count and
+     * returns the site to resume or null to skip it.
+     */
+    public synchronized void restore(BiFunction<Integer, Integer, Site> restoreSite,
+                                     Collection<String> gonePaths,
+                                     UrlSeenSet seenUrls,
+                                     CrawlFrontier frontier,
+                                     Predicate<Site> acceptEntry) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown checkpoint format");
+            }
+            Map<Integer, Site> sites = new HashMap<>();
+            int siteCount = in.readInt();
+            for (int i = 0; i < siteCount; i++) {
+                int siteId = in.readInt();
+                Site site = restoreSite.apply(siteId, in.readInt());
+                if (site != null) {
+                    sites.put(siteId, site);
+                }
+            }
+            int goneCount = in.readInt();
+            for (int i = 0; i < goneCount; i++) {
+                gonePaths.add(in.readUTF());
+            }
+            seenUrls.read(in);
+            frontier.read(in, sites, acceptEntry);
+        }
+    }
+
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,253 @@
+package searchengine.services.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.entities.Site;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Pages found by the crawl and not fetched yet, in per host queues
+ * ordered by link depth and served round-robin. Past the memory capacity
+ * new entries go to a spill file. Polled entries stay in flight until
+ * they are done.
+ */
+@Slf4j
+public class CrawlFrontier {
+
+    private static final Comparator<Entry> BY_DEPTH = Comparator
+            .comparingInt(Entry::depth)
+            .thenComparingLong(Entry::sequence);
+
+    private final int memoryCapacity;
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final ArrayDeque<HostQueue> ready = new ArrayDeque<>();
+    private final Map<Integer, Site> sites = new HashMap<>();
+    private final Map<Long, Entry> inFlight = new HashMap<>();
+    private SpillFile spill;
+    private int memorySize;
+    private long sequence;
+
+    public CrawlFrontier(int memoryCapacity) {
+        this.memoryCapacity = memoryCapacity;
+    }
+
+    public synchronized void offer(Site site, String path, int generation, int depth) {
+        sites.putIfAbsent(site.getId(), site);
+        Entry entry = new Entry(site, path, generation, depth, sequence++);
+        if (spill != null || memorySize >= memoryCapacity) {
+            try {
+                getSpill().write(entry);
+                return;
+            } catch (IOException e) {
+                log.warn("Frontier entry is kept in memory - {}", e.getMessage());
+            }
+        }
+        add(entry);
+    }
+
+    public synchronized Entry poll() {
+        if (memorySize <= memoryCapacity / 2 && spill != null) {
+            refill();
+        }
+        HostQueue host = ready.poll();
+        if (host == null) {
+            return null;
+        }
+        Entry entry = host.entries.poll();
+        if (!host.entries.isEmpty()) {
+            ready.add(host);
+        }
+        memorySize--;
+        inFlight.put(entry.sequence(), entry);
+        return entry;
+    }
+
+    public synchronized void done(Entry entry) {
+        inFlight.remove(entry.sequence());
+    }
+
+    public synchronized long size() {
+        return memorySize + (spill == null ? 0 : spill.size());
+    }
+
+    public synchronized void clear() {
+        hosts.clear();
+        ready.clear();
+        sites.clear();
+        inFlight.clear();
+        memorySize = 0;
+        closeSpill();
+    }
+
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeLong(inFlight.size() + size());
+        for (Entry entry : inFlight.values()) {
+            writeEntry(out, entry);
+        }
+        for (HostQueue host : hosts.values()) {
+            for (Entry entry : host.entries) {
+                writeEntry(out, entry);
+            }
+        }
+        if (spill != null) {
+            spill.copyTo(out);
+        }
+    }
+
+    public void read(DataInput in, Map<Integer, Site> knownSites,
+                     Predicate<Site> accept) throws IOException {
+        long count = in.readLong();
+        for (long i = 0; i < count; i++) {
+            String path = in.readUTF();
+            Site site = knownSites.get(in.readInt());
+            int generation = in.readInt();
+            int depth = in.readInt();
+            if (site != null && accept.test(site)) {
+                offer(site, path, generation, depth);
+            }
+        }
+    }
+
+    private static void writeEntry(DataOutput out, Entry entry) throws IOException {
+        out.writeUTF(entry.path());
+        out.writeInt(entry.site().getId());
+        out.writeInt(entry.generation());
+        out.writeInt(entry.depth());
+    }
+
+    private void add(Entry entry) {
+        HostQueue host = hosts.computeIfAbsent(entry.site().getUrl(), url -> new HostQueue());
+        if (host.entries.isEmpty()) {
+            ready.add(host);
+        }
+        host.entries.add(entry);
+        memorySize++;
+    }
+
+    private void refill() {
+        try {
+            while (memorySize < memoryCapacity && spill.size() > 0) {
+                Entry entry = spill.read(sites);
+                if (entry.site() != null) {
+                    add(entry);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Frontier spill file is lost - {}", e.getMessage());
+            closeSpill();
+            return;
+        }
+        if (spill.size() == 0) {
+            closeSpill();
+        }
+    }
+
+    private SpillFile getSpill() throws IOException {
+        if (spill == null) {
+            spill = new SpillFile(Files.createTempFile("frontier", ".bin"));
+        }
+        return spill;
+    }
+
+    private void closeSpill() {
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    public record Entry(Site site, String path, int generation, int depth, long sequence) {
+    }
+
+    private static class HostQueue {
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>(BY_DEPTH);
+    }
+
+    /**
+     * Append-only file of entries read back from the start. The writer
+     * is flushed before every read, so the reader never sees a partial
+     * entry. The path goes first: a path too long to write fails before
+     * anything of the entry is written.
+     */
+    private static class SpillFile implements Closeable {
+        private final Path path;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private long written;
+        private long read;
+
+        SpillFile(Path path) throws IOException {
+            this.path = path;
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        void write(Entry entry) throws IOException {
+            writeEntry(out, entry);
+            out.writeLong(entry.sequence());
+            written++;
+        }
+
+        /**
+         * Copies the entries not read yet, without their sequence numbers.
+         */
+        void copyTo(DataOutput copy) throws IOException {
+            out.flush();
+            try (DataInputStream all = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(path)))) {
+                for (long i = 0; i < written; i++) {
+                    String entryPath = all.readUTF();
+                    int siteId = all.readInt();
+                    int generation = all.readInt();
+                    int depth = all.readInt();
+                    all.readLong();
+                    if (i >= read) {
+                        copy.writeUTF(entryPath);
+                        copy.writeInt(siteId);
+                        copy.writeInt(generation);
+                        copy.writeInt(depth);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the next entry, with a null site if the site is gone.
+         */
+        Entry read(Map<Integer, Site> sites) throws IOException {
+            out.flush();
+            read++;
+            String path = in.readUTF();
+            return new Entry(sites.get(in.readInt()), path, in.readInt(), in.readInt(), in.readLong());
+        }
+
+        long size() {
+            return written - read;
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+                in.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Frontier spill file {} is not deleted - {}", path, e.getMessage());
+            }
+        }
+    }
+}
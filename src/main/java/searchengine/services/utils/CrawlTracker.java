@@ -0,0 +1,99 @@
+package searchengine.services.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import searchengine.entities.Site;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Counts outstanding crawl, save and indexing work per site and calls
+ * the completion callback when the count of a site drops to zero.
+ */
+@RequiredArgsConstructor
+public class CrawlTracker {
+
+    private final Map<Site, SiteCrawl> crawls = new ConcurrentHashMap<>();
+    private final Consumer<SiteCrawl> onCompleted;
+
+    /**
+     * Registers a crawl of the site unless one is already running.
+     * The completion callback is called only for full crawls.
+     */
+    public void register(Site site, boolean fullCrawl) {
+        crawls.putIfAbsent(site, new SiteCrawl(site, fullCrawl));
+    }
+
+    /**
+     * The crawl holds one unit of work until {@link #end} is called, so
+     * it does not complete while its frontier is being restored.
+     */
+    public void resume(Site site, int pages) {
+        SiteCrawl crawl = new SiteCrawl(site, true);
+        crawl.tasks = 1;
+        crawl.pages = pages;
+        crawls.put(site, crawl);
+    }
+
+    /**
+     * Returns false if the site crawl is not registered, e.g. it has
+     * been stopped.
+     */
+    public boolean begin(Site site) {
+        return crawls.computeIfPresent(site, (s, crawl) -> {
+            crawl.tasks++;
+            return crawl;
+        }) != null;
+    }
+
+    public void end(Site site) {
+        SiteCrawl[] completed = new SiteCrawl[1];
+        crawls.computeIfPresent(site, (s, crawl) -> {
+            if (--crawl.tasks > 0) {
+                return crawl;
+            }
+            completed[0] = crawl;
+            return null;
+        });
+        if (completed[0] != null && completed[0].fullCrawl) {
+            onCompleted.accept(completed[0]);
+        }
+    }
+
+    public void pageSaved(Site site) {
+        crawls.computeIfPresent(site, (s, crawl) -> {
+            crawl.pages++;
+            return crawl;
+        });
+    }
+
+    public List<SiteCrawl> getFullCrawls() {
+        return crawls.values()
+                .stream()
+                .filter(SiteCrawl::isFullCrawl)
+                .toList();
+    }
+
+    public boolean isActive() {
+        return !crawls.isEmpty();
+    }
+
+    public boolean isActive(Site site) {
+        return crawls.containsKey(site);
+    }
+
+    public void clear() {
+        crawls.clear();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class SiteCrawl {
+        private final Site site;
+        private final boolean fullCrawl;
+        private int tasks;
+        private int pages;
+    }
+}
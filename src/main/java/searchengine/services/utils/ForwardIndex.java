@@ -0,0 +1,83 @@
+package searchengine.services.utils;
+
+import searchengine.models.MeaningPositions;
+import searchengine.models.TokenLemma;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-page forward index: for every lemma of the page the character
+ * offsets of its tokens in the stored page text. The binary layout is
+ * a varint lemma count followed by the lemmas, each of them as
+ * <pre>
+ * lemma length, UTF-8 lemma, entry length, token count,
+ * (start delta, token length) per token
+ * </pre>
+ * so lemmas that are not looked up are skipped without decoding.
+ */
+public class ForwardIndex {
+
+    public static byte[] encode(List<TokenLemma> tokens) {
+        Map<String, List<TokenLemma>> lemmas = new LinkedHashMap<>();
+        tokens.forEach(token -> lemmas
+                .computeIfAbsent(token.lemma(), lemma -> new ArrayList<>())
+                .add(token));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VarInts.write(out, lemmas.size());
+        lemmas.forEach((lemma, lemmaTokens) -> {
+            byte[] bytes = lemma.getBytes(StandardCharsets.UTF_8);
+            VarInts.write(out, bytes.length);
+            out.writeBytes(bytes);
+            ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            VarInts.write(entry, lemmaTokens.size());
+            int previous = 0;
+            for (TokenLemma token : lemmaTokens) {
+                VarInts.write(entry, token.start() - previous);
+                VarInts.write(entry, token.end() - token.start());
+                previous = token.start();
+            }
+            VarInts.write(out, entry.size());
+            out.writeBytes(entry.toByteArray());
+        });
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the positions of the tokens of the given lemmas
+     * ordered by their offsets.
+     */
+    public static List<MeaningPositions> find(byte[] forwardIndex, Collection<String> lemmas) {
+        Set<String> wanted = Set.copyOf(lemmas);
+        List<MeaningPositions> positions = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(forwardIndex);
+        int count = VarInts.read(buffer);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[VarInts.read(buffer)];
+            buffer.get(bytes);
+            String lemma = new String(bytes, StandardCharsets.UTF_8);
+            int entryLength = VarInts.read(buffer);
+            if (!wanted.contains(lemma)) {
+                buffer.position(buffer.position() + entryLength);
+                continue;
+            }
+            int tokens = VarInts.read(buffer);
+            int start = 0;
+            for (int j = 0; j < tokens; j++) {
+                start += VarInts.read(buffer);
+                int length = VarInts.read(buffer);
+                positions.add(new MeaningPositions(lemma, start, start + length, false));
+            }
+        }
+        positions.sort(Comparator.comparingInt(MeaningPositions::start));
+        return positions;
+    }
+}
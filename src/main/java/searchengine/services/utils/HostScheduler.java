@@ -0,0 +1,137 @@
+package searchengine.services.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per host token buckets with the configured rate, lowered to the
+ * robots.txt Crawl-delay when the host declares one.
+ */
+@Slf4j
+public class HostScheduler {
+
+    private static final String ROBOTS_PATH = "/robots.txt";
+    private static final String USER_AGENT = "user-agent:";
+    private static final String CRAWL_DELAY = "crawl-delay:";
+
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "host-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final double rate;
+    private final int burst;
+    private final boolean respectCrawlDelay;
+    private final Executor robotsExecutor;
+
+    public HostScheduler(double rate, int burst,
+                         boolean respectCrawlDelay, Executor robotsExecutor) {
+        this.rate = rate;
+        this.burst = burst;
+        this.respectCrawlDelay = respectCrawlDelay;
+        this.robotsExecutor = robotsExecutor;
+    }
+
+    public void schedule(String origin, Runnable dispatch) {
+        long delay = buckets
+                .computeIfAbsent(origin, this::createBucket)
+                .reserve();
+        if (delay <= 0) {
+            dispatch.run();
+        } else {
+            timer.schedule(dispatch, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private TokenBucket createBucket(String origin) {
+        TokenBucket bucket = new TokenBucket(rate, burst);
+        if (respectCrawlDelay) {
+            robotsExecutor.execute(() -> loadCrawlDelay(origin, bucket));
+        }
+        return bucket;
+    }
+
+    private void loadCrawlDelay(String origin, TokenBucket bucket) {
+        try {
+            String robots = Jsoup.connect(origin + ROBOTS_PATH)
+                    .ignoreContentType(true)
+                    .execute()
+                    .body();
+            double crawlDelay = parseCrawlDelay(robots);
+            if (crawlDelay > 0) {
+                bucket.limitRate(1 / crawlDelay);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.info("{}{} is not read - {}", origin, ROBOTS_PATH, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the Crawl-delay in seconds of the group for all user agents,
+     * or zero if there is none.
+     */
+    static double parseCrawlDelay(String robots) {
+        boolean anyAgent = false;
+        boolean agentLine = false;
+        for (String line : robots.split("\n")) {
+            String rule = line.replaceAll("#.*", "").trim().toLowerCase();
+            if (rule.startsWith(USER_AGENT)) {
+                boolean any = rule.substring(USER_AGENT.length()).trim().equals("*");
+                anyAgent = agentLine ? anyAgent || any : any;
+                agentLine = true;
+                continue;
+            }
+            agentLine = false;
+            if (anyAgent && rule.startsWith(CRAWL_DELAY)) {
+                try {
+                    return Double.parseDouble(rule.substring(CRAWL_DELAY.length()).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Tokens may go negative. The deficit is the time the caller waits.
+     */
+    private static class TokenBucket {
+        private final double burst;
+        private double rate;
+        private double tokens;
+        private long refilled = System.nanoTime();
+
+        TokenBucket(double rate, double burst) {
+            this.rate = rate;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        synchronized long reserve() {
+            refill();
+            tokens--;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized void limitRate(double limit) {
+            refill();
+            rate = Math.min(rate, limit);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilled) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilled = now;
+        }
+    }
+}
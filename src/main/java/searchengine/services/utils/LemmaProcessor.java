@@ -1,54 +1,202 @@
 package searchengine.services.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.github.demidko.aot.PartOfSpeech;
 import com.github.demidko.aot.WordformMeaning;
 import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import searchengine.enums.Constants;
 import searchengine.enums.Patterns;
 import searchengine.models.Meaning;
+import searchengine.models.TokenLemma;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class LemmaProcessor {
 
-    private static StanfordCoreNLP englishLemmaPipeline;
+    private static final Pattern WORD = Patterns.WORD.getRedexPattern();
+    private static final Pattern ENGLISH_WORD = Patterns.CONTAINS_ENGLISH_LETTERS.getRedexPattern();
+    private static final Cache<String, List<Meaning>> LEMMAS_CACHE = createCache();
+    private static final Cache<String, List<Meaning>> TRANSFORMATIONS_CACHE = createCache();
 
-    private static void initEnglishLemmaPipeline() {
-        Properties props = new Properties();
-        props.put("annotators", "tokenize, pos, lemma");
-        englishLemmaPipeline = new StanfordCoreNLP(props);
+    /*
+     * Word frequencies follow Zipf's law, so a bounded cache of the most
+     * frequent words answers almost all lookups of indexing and search.
+     */
+    private static Cache<String, List<Meaning>> createCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(Constants.LEMMA_CACHE_SIZE.getValue())
+                .recordStats()
+                .build();
+    }
+
+    /*
+     * CoreNLP does not document its annotators as safe for concurrent
+     * use, so a pipeline, which builds its own annotators, serves one
+     * thread at a time. At most one pipeline per processor is created.
+     */
+    private static class EnglishLemmaPipelines {
+        private static final int SIZE = Runtime.getRuntime().availableProcessors();
+        private static final BlockingQueue<StanfordCoreNLP> IDLE = new LinkedBlockingQueue<>();
+        private static final AtomicInteger CREATED = new AtomicInteger();
+
+        static void annotate(Annotation document) {
+            StanfordCoreNLP pipeline = borrow();
+            try {
+                pipeline.annotate(document);
+            } finally {
+                IDLE.add(pipeline);
+            }
+        }
+
+        private static StanfordCoreNLP borrow() {
+            StanfordCoreNLP pipeline = IDLE.poll();
+            if (pipeline != null) {
+                return pipeline;
+            }
+            if (CREATED.incrementAndGet() <= SIZE) {
+                return create();
+            }
+            CREATED.decrementAndGet();
+            try {
+                return IDLE.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a lemma pipeline", e);
+            }
+        }
+
+        private static StanfordCoreNLP create() {
+            Properties props = new Properties();
+            props.put("annotators", "tokenize, ssplit, pos, lemma");
+            props.put("tokenize.whitespace", "true");
+            props.put("ssplit.isOneSentence", "true");
+            return new StanfordCoreNLP(props);
+        }
     }
 
     public static List<Meaning> getLemmas(String text, boolean lemmaTransformations) {
-        return Patterns.WORD.getRedexPattern()
+        List<String> words = WORD
                 .matcher(text.toLowerCase())
                 .results()
                 .map(MatchResult::group)
-                .flatMap(word -> Patterns.CONTAINS_ENGLISH_LETTERS.isMatches(word) ?
-                        getEnglishLemma(word) : getRussianLemma(word, lemmaTransformations))
+                .toList();
+        Map<Integer, Meaning> englishLemmas = lemmatizeEnglish(words, getCache(lemmaTransformations));
+        return IntStream.range(0, words.size())
+                .boxed()
+                .flatMap(i -> getWordLemmas(words, i, englishLemmas, lemmaTransformations).stream())
                 .distinct()
                 .filter(meaning -> !meaning.isEmpty())
                 .toList();
     }
 
-    public static Stream<Meaning> getEnglishLemma(String word) {
-        if (englishLemmaPipeline == null) {
-            initEnglishLemmaPipeline();
+    /**
+     * Returns the lemma of every word of the text that has one, with the
+     * offsets of the word in the text.
+     */
+    public static List<TokenLemma> getTokenLemmas(String text) {
+        List<MatchResult> matches = WORD.matcher(text).results().toList();
+        List<String> words = matches.stream()
+                .map(match -> match.group().toLowerCase())
+                .toList();
+        Map<Integer, Meaning> englishLemmas = lemmatizeEnglish(words, getCache(false));
+        List<TokenLemma> tokens = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) {
+            MatchResult match = matches.get(i);
+            getWordLemmas(words, i, englishLemmas, false).stream()
+                    .filter(meaning -> !meaning.isEmpty())
+                    .forEach(meaning -> tokens.add(
+                            new TokenLemma(meaning.word(), match.start(), match.end())
+                    ));
+        }
+        return tokens;
+    }
+
+    public static CacheStats getCacheStats(boolean lemmaTransformations) {
+        return getCache(lemmaTransformations).stats();
+    }
+
+    public static Cache<String, List<Meaning>> getCache(boolean lemmaTransformations) {
+        return lemmaTransformations ? TRANSFORMATIONS_CACHE : LEMMAS_CACHE;
+    }
+
+    private static List<Meaning> getWordLemmas(String word, boolean lemmaTransformations) {
+        return getCache(lemmaTransformations)
+                .get(word, w -> (ENGLISH_WORD.matcher(w).matches() ?
+                        getEnglishLemma(w) : getRussianLemma(w, lemmaTransformations))
+                        .toList());
+    }
+
+    private static List<Meaning> getWordLemmas(List<String> words, int index,
+                                               Map<Integer, Meaning> englishLemmas,
+                                               boolean lemmaTransformations) {
+        Meaning englishLemma = englishLemmas.get(index);
+        return englishLemma != null ? List.of(englishLemma) :
+                getWordLemmas(words.get(index), lemmaTransformations);
+    }
+
+    /*
+     * The POS tag, and so the lemma, of an English word depends on the
+     * words around it. If the block has English words missing in the
+     * cache, the whole block is tagged in order, its English words get
+     * the lemmas of their tokens and the missing ones are cached.
+     */
+    private static Map<Integer, Meaning> lemmatizeEnglish(List<String> words,
+                                                          Cache<String, List<Meaning>> cache) {
+        boolean missing = words.stream()
+                .anyMatch(word -> ENGLISH_WORD.matcher(word).matches() &&
+                        cache.getIfPresent(word) == null);
+        if (!missing) {
+            return Map.of();
+        }
+        Annotation document = new Annotation(String.join(" ", words));
+        EnglishLemmaPipelines.annotate(document);
+        List<CoreLabel> tokens = document.get(CoreAnnotations.TokensAnnotation.class);
+        if (tokens.size() != words.size()) {
+            return Map.of();
         }
+        Map<Integer, Meaning> lemmas = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String word = words.get(i);
+            if (ENGLISH_WORD.matcher(word).matches()) {
+                Meaning meaning = getEnglishMeaning(tokens.get(i).lemma());
+                lemmas.put(i, meaning);
+                cache.asMap().putIfAbsent(word, List.of(meaning));
+            }
+        }
+        return lemmas;
+    }
+
+    public static Stream<Meaning> getEnglishLemma(String word) {
         Annotation document = new Annotation(word);
-        englishLemmaPipeline.annotate(document);
+        EnglishLemmaPipelines.annotate(document);
         String lemma = document
                 .get(CoreAnnotations.TokensAnnotation.class)
                 .get(0)
                 .lemma();
+        return Stream.of(getEnglishMeaning(lemma));
+    }
+
+    private static Meaning getEnglishMeaning(String lemma) {
         if (lemma.length() < 3) {
-            return Stream.of(new Meaning("", false));
+            return new Meaning("", false);
         }
-        return Stream.of(new Meaning(lemma, false));
+        return new Meaning(lemma, false);
     }
 
     public static Stream<Meaning> getRussianLemma(String word, boolean transformations) {
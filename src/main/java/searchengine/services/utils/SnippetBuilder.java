@@ -0,0 +1,148 @@
+package searchengine.services.utils;
+
+import searchengine.entities.Page;
+import searchengine.enums.Patterns;
+import searchengine.models.Meaning;
+import searchengine.models.MeaningPositions;
+import searchengine.models.Snippet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class SnippetBuilder {
+
+    public static String getSnippet(Page page, List<Meaning> words, List<Meaning> lemmas) {
+        Stream<Snippet> snippets = page.getForwardIndex() != null && page.getText() != null ?
+                getIndexedSnippets(page, lemmas) : getSnippets(page, words);
+        return snippets
+                .filter(Snippet::isNotBlank)
+                .max(Snippet::compareTo)
+                .map(Snippet::toString)
+                .orElse("");
+    }
+
+    private static Stream<Snippet> getSnippets(Page page, List<Meaning> words) {
+        return TextExtractor.getTextBlocks(page)
+                .stream()
+                .map(text -> getSnippet(text, getPositions(text, words)));
+    }
+
+    private static Stream<Snippet> getIndexedSnippets(Page page, List<Meaning> lemmas) {
+        List<MeaningPositions> positions = ForwardIndex.find(
+                page.getForwardIndex(),
+                lemmas.stream()
+                        .map(Meaning::word)
+                        .toList()
+        );
+        List<Snippet> snippets = new ArrayList<>();
+        int separatorLength = Patterns.TEXT_BLOCK_SEPARATOR.getStringValue().length();
+        int blockStart = 0;
+        int next = 0;
+        for (String text : TextExtractor.getTextBlocks(page)) {
+            int blockEnd = blockStart + text.length();
+            List<MeaningPositions> blockPositions = new ArrayList<>();
+            while (next < positions.size() && positions.get(next).start() < blockEnd) {
+                MeaningPositions position = positions.get(next++);
+                blockPositions.add(new MeaningPositions(
+                        position.word(),
+                        position.start() - blockStart,
+                        position.end() - blockStart,
+                        false
+                ));
+            }
+            if (!blockPositions.isEmpty()) {
+                snippets.add(getSnippet(text, new Snippet(
+                        "",
+                        blockPositions,
+                        (int) blockPositions.stream()
+                                .map(MeaningPositions::word)
+                                .distinct()
+                                .count()
+                )));
+            }
+            blockStart = blockEnd + separatorLength;
+        }
+        return snippets.stream();
+    }
+
+    private static Snippet getSnippet(String text, Snippet snippet) {
+        int prevPos = 0;
+        StringBuilder stringSnippetBuilder = new StringBuilder();
+        List<MeaningPositions> positions = snippet.getPositions();
+        for (int i = 0; i < positions.size(); i++) {
+            stringSnippetBuilder.append(
+                    modifyString(
+                            text,
+                            prevPos,
+                            positions.get(i),
+                            i == positions.size() - 1
+                    )
+            );
+            prevPos = positions.get(i).end();
+        }
+        snippet.setSnippet(stringSnippetBuilder.toString());
+        return snippet;
+    }
+
+    private static Snippet getPositions(String text, List<Meaning> words) {
+        Set<MeaningPositions> positions = new HashSet<>();
+        words
+                .stream()
+                .flatMap(meaning -> Patterns.SAMPLE.getRedexPattern(meaning.word())
+                        .matcher(text.toLowerCase())
+                        .results()
+                        .map(matchResult ->
+                                new MeaningPositions(
+                                        meaning.word(),
+                                        matchResult.start(),
+                                        matchResult.end(),
+                                        meaning.stopWord()
+                                )
+                        )
+                )
+                .sorted(MeaningPositions::compareTo)
+                .forEach(positions::add);
+        List<MeaningPositions> list = positions.stream()
+                .sorted(MeaningPositions::compareTo)
+                .toList();
+        Set<String> strings = new HashSet<>();
+        List<MeaningPositions> result = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++) {
+            if (!list.get(i).stopWord() || i > 0  &&
+                    !list.get(i - 1).stopWord() && list.get(i).start() - list.get(i - 1).end() == 1 ||
+                    i < list.size() - 1 &&
+                    !list.get(i + 1).stopWord() && list.get(i + 1).start() - list.get(i).end() == 1) {
+                result.add(list.get(i));
+                strings.add(list.get(i).word());
+            }
+        }
+        return new Snippet(
+                "",
+                result,
+                strings.size()
+        );
+    }
+
+    private static String modifyString(String text, int prevPos,
+                                MeaningPositions meaningPositions, boolean isEndPart) {
+        String highlightedPart = Patterns.HIGHLIGHTED_STRING_PART
+                .getStringValue(text.substring(meaningPositions.start(), meaningPositions.end()));
+        String beginPart = "";
+        String endPart = "";
+        if (prevPos == 0 && meaningPositions.start() > 0) {
+            beginPart = Patterns.FIRST_STRING_PART
+                    .getStringValue(text.substring(prevPos, meaningPositions.start()));
+        }
+        if (prevPos > 0) {
+            beginPart = Patterns.MIDDLE_STRING_PART
+                    .getStringValue(text.substring(prevPos, meaningPositions.start()));
+        }
+        if (isEndPart && meaningPositions.end() < text.length()) {
+            endPart = Patterns.LAST_STRING_PART
+                    .getStringValue(text.substring(meaningPositions.end()));
+        }
+        return beginPart.concat(highlightedPart).concat(endPart);
+    }
+}
@@ -0,0 +1,69 @@
+package searchengine.services.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+import searchengine.entities.Page;
+import searchengine.enums.Patterns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class TextExtractor {
+
+    /**
+     * Passes the text of every outermost text element to the consumer.
+     */
+    public static void extract(Element root, Consumer<String> consumer) {
+        NodeTraversor.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (node instanceof Element element &&
+                        Patterns.HTML_TEXT_TAG_NAMES.isMatches(element.normalName())) {
+                    String text = element.text();
+                    if (!text.isBlank()) {
+                        consumer.accept(text);
+                    }
+                    return FilterResult.SKIP_ENTIRELY;
+                }
+                return FilterResult.CONTINUE;
+            }
+
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                return FilterResult.CONTINUE;
+            }
+        }, root);
+    }
+
+    public static String extractText(Element root) {
+        List<String> blocks = new ArrayList<>();
+        extract(root, blocks::add);
+        return String.join(Patterns.TEXT_BLOCK_SEPARATOR.getStringValue(), blocks);
+    }
+
+    public static List<String> getTextBlocks(Page page) {
+        if (page.getText() == null) {
+            List<String> blocks = new ArrayList<>();
+            extract(Jsoup.parse(page.getContent()).body(), blocks::add);
+            return blocks;
+        }
+        if (page.getText().isEmpty()) {
+            return List.of();
+        }
+        return Arrays.asList(
+                page.getText().split(Patterns.TEXT_BLOCK_SEPARATOR.getStringValue())
+        );
+    }
+
+    public static String getTitle(Page page) {
+        if (page.getTitle() == null) {
+            return Jsoup.parse(page.getContent()).title();
+        }
+        return page.getTitle();
+    }
+}
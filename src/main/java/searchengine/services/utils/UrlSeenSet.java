@@ -0,0 +1,161 @@
+package searchengine.services.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Visited URLs as 64-bit fingerprints in open-addressing tables, striped
+ * by the high bits of the fingerprint.
+ */
+public class UrlSeenSet {
+
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public UrlSeenSet() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Returns false if the URL has been seen before.
+     */
+    public boolean add(String siteUrl, String path) {
+        long fingerprint = fingerprint(siteUrl, path);
+        return segment(fingerprint).add(fingerprint);
+    }
+
+    public boolean contains(String siteUrl, String path) {
+        long fingerprint = fingerprint(siteUrl, path);
+        return segment(fingerprint).contains(fingerprint);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * URLs added meanwhile may be missing from the copy.
+     */
+    public void write(DataOutput out) throws IOException {
+        for (Segment segment : segments) {
+            long[] fingerprints = segment.toArray();
+            out.writeInt(fingerprints.length);
+            for (long fingerprint : fingerprints) {
+                out.writeLong(fingerprint);
+            }
+        }
+    }
+
+    public void read(DataInput in) throws IOException {
+        for (int i = 0; i < SEGMENTS; i++) {
+            int size = in.readInt();
+            for (int j = 0; j < size; j++) {
+                long fingerprint = in.readLong();
+                segment(fingerprint).add(fingerprint);
+            }
+        }
+    }
+
+    private Segment segment(long fingerprint) {
+        return segments[(int) (fingerprint >>> 60) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * FNV-1a with the MurmurHash3 finalizer. Never zero, which marks an
+     * empty slot.
+     */
+    private static long fingerprint(String siteUrl, String path) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = fnv(hash, siteUrl);
+        hash = fnv(hash, path);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long fnv(long hash, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static class Segment {
+        private long[] slots = new long[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized boolean add(long fingerprint) {
+            if (size * 4 >= slots.length * 3) {
+                resize();
+            }
+            int mask = slots.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == fingerprint) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = fingerprint;
+            size++;
+            return true;
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            int mask = slots.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == fingerprint) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        synchronized long[] toArray() {
+            long[] fingerprints = new long[size];
+            int i = 0;
+            for (long fingerprint : slots) {
+                if (fingerprint != 0) {
+                    fingerprints[i++] = fingerprint;
+                }
+            }
+            return fingerprints;
+        }
+
+        synchronized void clear() {
+            slots = new long[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        private void resize() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (long fingerprint : old) {
+                if (fingerprint == 0) {
+                    continue;
+                }
+                int slot = (int) fingerprint & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = fingerprint;
+            }
+        }
+    }
+}
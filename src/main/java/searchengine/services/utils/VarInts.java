@@ -0,0 +1,57 @@
+package searchengine.services.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 variable-length integers: 7 bits per byte, the high
+ * bit set on every byte but the last one.
+ */
+public class VarInts {
+
+    public static void write(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static int read(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Encodes ascending values as their count followed by the gaps
+     * between them.
+     */
+    public static byte[] encodeDeltas(int[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(values.length + 1);
+        write(out, values.length);
+        int previous = 0;
+        for (int value : values) {
+            write(out, value - previous);
+            previous = value;
+        }
+        return out.toByteArray();
+    }
+
+    public static int[] decodeDeltas(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int[] values = new int[read(buffer)];
+        int previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            previous += read(buffer);
+            values[i] = previous;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,249 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import searchengine.config.ContentStoreSettings;
+import searchengine.entities.Page;
+import searchengine.entities.Site;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private final Site site = site(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedPagesAreLoadedBack() throws IOException {
+        ContentStore store = open(1 << 20);
+        Page page = page("Заголовок и текст", "<html><body>Заголовок и текст</body></html>");
+        Page withoutText = page(null, "<html></html>");
+
+        long offset = store.append(page);
+        long withoutTextOffset = store.append(withoutText);
+
+        assertEquals(0L, offset);
+        assertEquals(page.getText(), loadText(store, offset));
+        assertEquals(page.getContent(), load(store, offset).getContent());
+        assertEquals("", loadText(store, withoutTextOffset));
+        assertEquals(withoutText.getContent(), load(store, withoutTextOffset).getContent());
+    }
+
+    @Test
+    void reopenedStoreAppendsAfterTheLastRecord() throws IOException {
+        ContentStore store = open(1 << 20);
+        long first = store.append(page("first", "<p>first</p>"));
+        long second = store.append(page("second", "<p>second</p>"));
+        store.close();
+
+        ContentStore reopened = open(1 << 20);
+        long third = reopened.append(page("third", "<p>third</p>"));
+
+        assertTrue(third > second);
+        assertEquals("first", loadText(reopened, first));
+        assertEquals("second", loadText(reopened, second));
+        assertEquals("third", loadText(reopened, third));
+    }
+
+    @Test
+    void recordWithoutHeaderIsOverwrittenAfterReopen() throws IOException {
+        ContentStore store = open(1 << 20);
+        long first = store.append(page("first", "<p>first</p>"));
+        long torn = store.append(page("torn", "<p>torn</p>"));
+        store.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve("1-0/segment-00000.dat"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), torn);
+        }
+
+        ContentStore reopened = open(1 << 20);
+        long next = reopened.append(page("next", "<p>next</p>"));
+
+        assertEquals(torn, next);
+        assertEquals("first", loadText(reopened, first));
+        assertEquals("next", loadText(reopened, next));
+        assertEquals("<p>next</p>", load(reopened, next).getContent());
+    }
+
+    @Test
+    void recordsRollOverToNewSegments() throws IOException {
+        ContentStore store = open(SEGMENT_SIZE);
+        Random random = new Random(7);
+        List<Page> pages = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Page page = page(randomText(random, 600), randomText(random, 900));
+            pages.add(page);
+            offsets.add(store.append(page));
+        }
+        store.close();
+
+        assertTrue(Files.exists(directory.resolve("1-0/segment-00003.dat")));
+        for (int i = 1; i < offsets.size(); i++) {
+            assertTrue(offsets.get(i) > offsets.get(i - 1));
+        }
+
+        ContentStore reopened = open(SEGMENT_SIZE);
+        for (int i = 0; i < pages.size(); i++) {
+            Page loaded = load(reopened, offsets.get(i));
+            assertEquals(pages.get(i).getText(), loaded.getText());
+            assertEquals(pages.get(i).getContent(), loaded.getContent());
+        }
+        long next = reopened.append(page("next", "<p>next</p>"));
+        assertEquals(offsets.get(offsets.size() - 1) / SEGMENT_SIZE, next / SEGMENT_SIZE);
+        assertTrue(next > offsets.get(offsets.size() - 1));
+    }
+
+    @Test
+    void recordLargerThanASegmentIsNotStored() throws IOException {
+        ContentStore store = open(SEGMENT_SIZE);
+
+        assertNull(store.append(page(null, randomText(new Random(1), SEGMENT_SIZE * 2))));
+        assertNotNull(store.append(page("small", "<p>small</p>")));
+    }
+
+    @Test
+    void disabledStoreKeepsBodiesInTheTable() throws IOException {
+        ContentStoreSettings settings = new ContentStoreSettings();
+        settings.setEnabled(false);
+        settings.setDirectory(directory.toString());
+        ContentStore store = new ContentStore(settings);
+        store.open();
+
+        assertNull(store.append(page("text", "<p>text</p>")));
+    }
+
+    @Test
+    void disabledStoreStillReadsStoredPages() throws IOException {
+        ContentStore store = open(1 << 20);
+        long offset = store.append(page("stored", "<p>stored</p>"));
+        store.close();
+
+        ContentStoreSettings settings = new ContentStoreSettings();
+        settings.setEnabled(false);
+        settings.setDirectory(directory.toString());
+        settings.setSegmentSize(1 << 20);
+        ContentStore disabled = new ContentStore(settings);
+        disabled.open();
+
+        assertEquals("stored", loadText(disabled, offset));
+        assertEquals("<p>stored</p>", load(disabled, offset).getContent());
+    }
+
+    @Test
+    void generationsAreStoredApartAndDropped() throws IOException {
+        ContentStore store = open(1 << 20);
+        long current = store.append(page("current", "<p>current</p>"));
+        Page next = page("next", "<p>next</p>");
+        next.setGeneration(1);
+        long nextOffset = store.append(next);
+        long otherSite = store.append(page(site(2), "other", "<p>other</p>"));
+
+        assertEquals(0L, nextOffset);
+        assertEquals(0L, otherSite);
+
+        store.dropGeneration(1, 0);
+
+        assertTrue(Files.notExists(directory.resolve("1-0")));
+        assertEquals("next", loadText(store, 1, nextOffset));
+        store.close();
+        ContentStore reopened = open(1 << 20);
+        assertEquals("next", loadText(reopened, 1, nextOffset));
+        assertEquals("other", loadText(reopened, page(site(2), null, null), otherSite));
+        assertThrows(IllegalStateException.class, () -> loadText(reopened, 0, current));
+    }
+
+    @Test
+    void sizeCountsTheRecordsOfAllGenerations() throws IOException {
+        ContentStore store = open(SEGMENT_SIZE);
+        assertEquals(0L, store.getSize());
+
+        long offset = store.append(page("text", "<p>text</p>"));
+        long size = store.getSize();
+        Page next = page("text", "<p>text</p>");
+        next.setGeneration(1);
+        store.append(next);
+
+        assertEquals(0L, offset);
+        assertTrue(size > 0);
+        assertEquals(size * 2, store.getSize());
+        store.dropGeneration(1, 1);
+        assertEquals(size, store.getSize());
+    }
+
+    private ContentStore open(int segmentSize) throws IOException {
+        ContentStoreSettings settings = new ContentStoreSettings();
+        settings.setDirectory(directory.toString());
+        settings.setSegmentSize(segmentSize);
+        ContentStore store = new ContentStore(settings);
+        store.open();
+        return store;
+    }
+
+    private Page page(String text, String content) {
+        return page(site, text, content);
+    }
+
+    private static Page page(Site site, String text, String content) {
+        Page page = new Page(site, "/");
+        page.setText(text);
+        page.setContent(content);
+        return page;
+    }
+
+    private String loadText(ContentStore store, long offset) {
+        return loadText(store, 0, offset);
+    }
+
+    private String loadText(ContentStore store, int generation, long offset) {
+        Page page = page(null, null);
+        page.setGeneration(generation);
+        return loadText(store, page, offset);
+    }
+
+    private static String loadText(ContentStore store, Page page, long offset) {
+        page.setContentOffset(offset);
+        store.loadText(page);
+        return page.getText();
+    }
+
+    private Page load(ContentStore store, long offset) {
+        Page page = page(null, null);
+        page.setContentOffset(offset);
+        store.load(page);
+        return page;
+    }
+
+    private static Site site(int id) {
+        Site site = new Site("https://example.com/" + id);
+        site.setId(id);
+        return site;
+    }
+
+    // barely compresses, so every record takes a good part of a small segment
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvertedIndexTest {
+
+    private static final List<String> LEMMAS = List.of("a", "b", "c", "d");
+
+    @Test
+    void maxScoreRankingMatchesExhaustiveRanking() {
+        Random random = new Random(7);
+        InvertedIndex index = new InvertedIndex(null, null);
+        Map<Integer, Map<String, Float>> pages = new HashMap<>();
+        for (int siteId = 1; siteId <= 2; siteId++) {
+            index.setGeneration(siteId, 0);
+            for (int i = 0; i < 500; i++) {
+                int pageId = siteId * 1000 + i;
+                Map<String, Float> ranks = new HashMap<>();
+                for (String lemma : LEMMAS) {
+                    if (random.nextInt(3) > 0) {
+                        ranks.put(lemma, random.nextInt(64) / 64f);
+                    }
+                }
+                pages.put(pageId, ranks);
+                index.addPage(siteId, 0, pageId, ranks);
+            }
+        }
+
+        for (List<String> query : List.of(List.of("a"), List.of("a", "b"), List.of("b", "c", "d"))) {
+            for (int k : new int[]{1, 10, 100}) {
+                Ranking expected = rankExhaustively(pages, query, k);
+                Ranking actual = index.rank(query, null, k);
+
+                assertEquals(expected.count(), actual.count());
+                assertArrayEquals(scores(expected), scores(actual));
+                for (int i = 0; i < actual.size(); i++) {
+                    assertEquals(score(pages.get(actual.getPageId(i)), query), actual.getScore(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shadowGenerationIsSearchedOnlyOnceActivated() {
+        InvertedIndex index = new InvertedIndex(null, null);
+        index.setGeneration(1, 0);
+        index.addPage(1, 0, 10, Map.of("a", 0.5f));
+        index.addPage(1, 1, 20, Map.of("a", 0.5f));
+
+        assertEquals(1, index.rank(List.of("a"), 1, 10).count());
+        assertEquals(10, index.rank(List.of("a"), 1, 10).getPageId(0));
+
+        index.activate(1, 1);
+
+        assertEquals(1, index.rank(List.of("a"), 1, 10).count());
+        assertEquals(20, index.rank(List.of("a"), 1, 10).getPageId(0));
+    }
+
+    @Test
+    void addAndRemoveCountLemmasOfTheSiteGeneration() {
+        InvertedIndex index = new InvertedIndex(null, null);
+        index.setGeneration(1, 0);
+
+        assertEquals(2, index.addPage(1, 0, 1, Map.of("a", 0.5f, "b", 0.5f)));
+        assertEquals(1, index.addPage(1, 0, 2, Map.of("b", 0.5f, "c", 0.5f)));
+        assertEquals(1, index.removePage(1, 0, 1, List.of("a", "b")));
+    }
+
+    // pages of equal scores may be kept in any order
+    private static float[] scores(Ranking ranking) {
+        float[] scores = new float[ranking.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = ranking.getScore(i);
+        }
+        return scores;
+    }
+
+    private static float score(Map<String, Float> ranks, List<String> query) {
+        float score = 0;
+        for (String lemma : query) {
+            score += ranks.get(lemma);
+        }
+        return score;
+    }
+
+    private static Ranking rankExhaustively(Map<Integer, Map<String, Float>> pages,
+                                            List<String> query, int k) {
+        List<Long> matches = new ArrayList<>();
+        pages.forEach((pageId, ranks) -> {
+            if (ranks.keySet().containsAll(query)) {
+                matches.add(Postings.entry(pageId, score(ranks, query)));
+            }
+        });
+        TopK top = new TopK(k);
+        matches.forEach(top::offer);
+        return new Ranking(top.toArray(), matches.size());
+    }
+}
@@ -0,0 +1,117 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingsTest {
+
+    @Test
+    void getRankReturnsTheRankOfThePage() {
+        Postings postings = new Postings();
+        postings.add(7, 0.25f);
+        postings.add(3, 0.75f);
+        postings.add(12, 0.5f);
+
+        assertEquals(0.75f, postings.getRank(3));
+        assertEquals(0.25f, postings.getRank(7));
+        assertEquals(0.5f, postings.getRank(12));
+        assertTrue(postings.getRank(5) < 0);
+    }
+
+    @Test
+    void topReturnsEntriesByRankDescending() {
+        Postings postings = new Postings();
+        postings.add(1, 0.1f);
+        postings.add(2, 0.9f);
+        postings.add(3, 0.5f);
+
+        long[] top = postings.top(2);
+
+        assertEquals(2, top.length);
+        assertEquals(2, Postings.pageId(top[0]));
+        assertEquals(0.9f, Postings.rank(top[0]));
+        assertEquals(3, Postings.pageId(top[1]));
+        assertEquals(0.9f, postings.maxRank());
+    }
+
+    @Test
+    void pageAddedTwiceKeepsItsLatestRank() {
+        Postings postings = new Postings();
+        postings.add(4, 0.2f);
+        postings.size();
+        postings.add(4, 0.6f);
+
+        assertEquals(1, postings.size());
+        assertEquals(0.6f, postings.getRank(4));
+    }
+
+    @Test
+    void pageAddedTwiceBeforeAMergeKeepsItsLatestRank() {
+        Postings postings = new Postings();
+        postings.add(4, 0.6f);
+        postings.add(4, 0.2f);
+
+        assertEquals(1, postings.size());
+        assertEquals(0.2f, postings.getRank(4));
+        assertEquals(0.2f, postings.maxRank());
+    }
+
+    @Test
+    void readsMatchTheLatestRanksAcrossMerges() {
+        Postings postings = new Postings();
+        Map<Integer, Float> ranks = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            int pageId = random.nextInt(300) + 1;
+            float rank = random.nextInt(1000) / 1000f;
+            postings.add(pageId, rank);
+            ranks.put(pageId, rank);
+            if (i % 97 == 0) {
+                postings.remove(pageId);
+                ranks.remove(pageId);
+            }
+        }
+
+        assertEquals(ranks.size(), postings.size());
+        ranks.forEach((pageId, rank) -> assertEquals((float) rank, postings.getRank(pageId)));
+        long[] top = postings.top(ranks.size());
+        assertEquals(ranks.size(), top.length);
+        for (int i = 0; i < top.length; i++) {
+            assertEquals((float) ranks.get(Postings.pageId(top[i])), Postings.rank(top[i]));
+            assertTrue(i == 0 || top[i] <= top[i - 1]);
+        }
+    }
+
+    @Test
+    void removeDropsThePageFromBothOrders() {
+        Postings postings = new Postings();
+        postings.add(1, 0.3f);
+        postings.add(2, 0.8f);
+
+        assertFalse(postings.remove(2));
+        assertFalse(postings.remove(9));
+
+        assertEquals(1, postings.size());
+        assertTrue(postings.getRank(2) < 0);
+        assertArrayEquals(new long[]{Postings.entry(1, 0.3f)}, postings.top(10));
+    }
+
+    @Test
+    void addAndRemoveReportEmptyTransitions() {
+        Postings postings = new Postings();
+
+        assertTrue(postings.add(1, 0.5f));
+        assertFalse(postings.add(2, 0.5f));
+        assertFalse(postings.remove(1));
+        assertTrue(postings.remove(2));
+        assertTrue(postings.isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKTest {
+
+    @Test
+    void keepsTheGreatestEntriesOrderedByScore() {
+        Random random = new Random(42);
+        long[] entries = new long[1000];
+        TopK top = new TopK(10);
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = Postings.entry(i, random.nextFloat());
+            top.offer(entries[i]);
+        }
+        Arrays.sort(entries);
+        long[] expected = new long[10];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = entries[entries.length - 1 - i];
+        }
+
+        assertArrayEquals(expected, top.toArray());
+    }
+
+    @Test
+    void isBeyondReachOnlyOnceFull() {
+        TopK top = new TopK(2);
+        top.offer(Postings.entry(1, 0.5f));
+
+        assertFalse(top.isBeyondReach(0.1f));
+
+        top.offer(Postings.entry(2, 0.7f));
+
+        assertTrue(top.isBeyondReach(0.5f));
+        assertFalse(top.isBeyondReach(0.6f));
+    }
+
+    @Test
+    void zeroKeepsNothing() {
+        TopK top = new TopK(0);
+        top.offer(Postings.entry(1, 1f));
+
+        assertEquals(0, top.toArray().length);
+        assertTrue(top.isBeyondReach(100f));
+    }
+}
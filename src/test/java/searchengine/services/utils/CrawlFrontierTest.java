@@ -0,0 +1,151 @@
+package searchengine.services.utils;
+
+import org.junit.jupiter.api.Test;
+import searchengine.entities.Site;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CrawlFrontierTest {
+
+    private final Site first = site(1, "https://example.com");
+    private final Site second = site(2, "https://example.org");
+
+    @Test
+    void pollsShallowPagesFirstInOfferOrder() {
+        CrawlFrontier frontier = new CrawlFrontier(100);
+        frontier.offer(first, "/deep", 0, 2);
+        frontier.offer(first, "/a", 0, 1);
+        frontier.offer(first, "/b", 0, 1);
+
+        assertEquals(List.of("/a", "/b", "/deep"), pollPaths(frontier));
+        assertNull(frontier.poll());
+    }
+
+    @Test
+    void servesHostsRoundRobin() {
+        CrawlFrontier frontier = new CrawlFrontier(100);
+        frontier.offer(first, "/1", 0, 0);
+        frontier.offer(first, "/2", 0, 0);
+        frontier.offer(first, "/3", 0, 0);
+        frontier.offer(second, "/x", 0, 0);
+
+        List<String> urls = new ArrayList<>();
+        for (CrawlFrontier.Entry entry = frontier.poll(); entry != null; entry = frontier.poll()) {
+            urls.add(entry.site().getUrl() + entry.path());
+        }
+
+        assertEquals(List.of(
+                "https://example.com/1",
+                "https://example.org/x",
+                "https://example.com/2",
+                "https://example.com/3"
+        ), urls);
+    }
+
+    @Test
+    void spilledEntriesAreReplayedInOrder() {
+        CrawlFrontier frontier = new CrawlFrontier(4);
+        List<String> offered = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            frontier.offer(first, "/page/" + i, 3, 0);
+            offered.add("/page/" + i);
+        }
+        assertEquals(50, frontier.size());
+
+        List<CrawlFrontier.Entry> polled = new ArrayList<>();
+        for (CrawlFrontier.Entry entry = frontier.poll(); entry != null; entry = frontier.poll()) {
+            polled.add(entry);
+            frontier.done(entry);
+        }
+
+        assertEquals(offered, polled.stream().map(CrawlFrontier.Entry::path).toList());
+        polled.forEach(entry -> {
+            assertEquals(first, entry.site());
+            assertEquals(3, entry.generation());
+        });
+        assertEquals(0, frontier.size());
+        frontier.clear();
+    }
+
+    @Test
+    void entriesOfferedWhileSpillingKeepTheirDepth() {
+        CrawlFrontier frontier = new CrawlFrontier(2);
+        frontier.offer(first, "/a", 0, 1);
+        frontier.offer(first, "/b", 0, 1);
+        frontier.offer(first, "/deep", 0, 3);
+        frontier.offer(first, "/c", 0, 1);
+
+        assertEquals(List.of("/a", "/b", "/c", "/deep"), pollPaths(frontier));
+        frontier.clear();
+    }
+
+    @Test
+    void writtenFrontierIsReadBack() throws IOException {
+        CrawlFrontier frontier = new CrawlFrontier(2);
+        frontier.offer(first, "/done", 5, 0);
+        frontier.offer(first, "/in-flight", 5, 0);
+        frontier.offer(second, "/memory", 7, 1);
+        frontier.offer(first, "/spilled", 5, 2);
+        frontier.done(frontier.poll());
+        frontier.poll();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        frontier.write(new DataOutputStream(bytes));
+        frontier.clear();
+
+        CrawlFrontier copy = new CrawlFrontier(100);
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                Map.of(1, first, 2, second), site -> true);
+
+        List<CrawlFrontier.Entry> entries = new ArrayList<>();
+        for (CrawlFrontier.Entry entry = copy.poll(); entry != null; entry = copy.poll()) {
+            entries.add(entry);
+        }
+        assertEquals(List.of("/in-flight", "/memory", "/spilled"),
+                entries.stream().map(CrawlFrontier.Entry::path).toList());
+        assertEquals(List.of(5, 7, 5),
+                entries.stream().map(CrawlFrontier.Entry::generation).toList());
+        assertEquals(List.of(0, 1, 2),
+                entries.stream().map(CrawlFrontier.Entry::depth).toList());
+    }
+
+    @Test
+    void readSkipsUnknownAndRejectedSites() throws IOException {
+        CrawlFrontier frontier = new CrawlFrontier(100);
+        frontier.offer(first, "/a", 0, 0);
+        frontier.offer(second, "/b", 0, 0);
+        frontier.offer(site(3, "https://example.net"), "/c", 0, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        frontier.write(new DataOutputStream(bytes));
+
+        CrawlFrontier copy = new CrawlFrontier(100);
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                Map.of(1, first, 2, second), site -> !site.equals(second));
+
+        assertEquals(List.of("/a"), pollPaths(copy));
+    }
+
+    private static List<String> pollPaths(CrawlFrontier frontier) {
+        List<String> paths = new ArrayList<>();
+        for (CrawlFrontier.Entry entry = frontier.poll(); entry != null; entry = frontier.poll()) {
+            paths.add(entry.path());
+        }
+        return paths;
+    }
+
+    private static Site site(int id, String url) {
+        Site site = new Site(url);
+        site.setId(id);
+        return site;
+    }
+}
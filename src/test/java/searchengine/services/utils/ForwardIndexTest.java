@@ -0,0 +1,56 @@
+package searchengine.services.utils;
+
+import org.junit.jupiter.api.Test;
+import searchengine.models.MeaningPositions;
+import searchengine.models.TokenLemma;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForwardIndexTest {
+
+    private static final List<TokenLemma> TOKENS = List.of(
+            new TokenLemma("кот", 0, 5),
+            new TokenLemma("спать", 6, 11),
+            new TokenLemma("кот", 20, 23),
+            new TokenLemma("мир", 300, 303),
+            new TokenLemma("спать", 1_000, 1_006)
+    );
+
+    @Test
+    void findReturnsTokensOfTheWantedLemmasByOffset() {
+        byte[] index = ForwardIndex.encode(TOKENS);
+
+        List<MeaningPositions> positions = ForwardIndex.find(index, List.of("кот", "спать"));
+
+        assertEquals(4, positions.size());
+        assertPosition(positions.get(0), "кот", 0, 5);
+        assertPosition(positions.get(1), "спать", 6, 11);
+        assertPosition(positions.get(2), "кот", 20, 23);
+        assertPosition(positions.get(3), "спать", 1_000, 1_006);
+    }
+
+    @Test
+    void skippedLemmasDoNotShiftTheOthers() {
+        byte[] index = ForwardIndex.encode(TOKENS);
+
+        List<MeaningPositions> positions = ForwardIndex.find(index, List.of("мир"));
+
+        assertEquals(1, positions.size());
+        assertPosition(positions.get(0), "мир", 300, 303);
+    }
+
+    @Test
+    void unknownLemmasAndEmptyIndexFindNothing() {
+        assertTrue(ForwardIndex.find(ForwardIndex.encode(TOKENS), List.of("пёс")).isEmpty());
+        assertTrue(ForwardIndex.find(ForwardIndex.encode(List.of()), List.of("кот")).isEmpty());
+    }
+
+    private static void assertPosition(MeaningPositions position, String lemma, int start, int end) {
+        assertEquals(lemma, position.word());
+        assertEquals(start, position.start());
+        assertEquals(end, position.end());
+    }
+}
@@ -0,0 +1,50 @@
+package searchengine.services.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostSchedulerTest {
+
+    @Test
+    void crawlDelayIsReadFromTheGroupForAllAgents() {
+        String robots = """
+                User-agent: Googlebot
+                Crawl-delay: 10
+
+                User-agent: Yandex
+                User-agent: *
+                Disallow: /admin # private
+                Crawl-delay: 2.5
+                """;
+
+        assertEquals(2.5, HostScheduler.parseCrawlDelay(robots), 0);
+    }
+
+    @Test
+    void crawlDelayIsZeroWithoutAGroupForAllAgents() {
+        assertEquals(0, HostScheduler.parseCrawlDelay("User-agent: Googlebot\nCrawl-delay: 5\n"), 0);
+        assertEquals(0, HostScheduler.parseCrawlDelay("User-agent: *\nCrawl-delay: soon\n"), 0);
+        assertEquals(0, HostScheduler.parseCrawlDelay(""), 0);
+    }
+
+    @Test
+    void dispatchesBeyondTheBurstAreDelayed() throws InterruptedException {
+        HostScheduler scheduler = new HostScheduler(20, 2, false, Runnable::run);
+        AtomicInteger immediate = new AtomicInteger();
+        CountDownLatch delayed = new CountDownLatch(1);
+        scheduler.schedule("https://a.test", immediate::incrementAndGet);
+        scheduler.schedule("https://a.test", immediate::incrementAndGet);
+        scheduler.schedule("https://a.test", delayed::countDown);
+        scheduler.schedule("https://b.test", immediate::incrementAndGet);
+
+        assertEquals(3, immediate.get());
+        assertEquals(1, delayed.getCount());
+        assertTrue(delayed.await(1, TimeUnit.SECONDS));
+    }
+}
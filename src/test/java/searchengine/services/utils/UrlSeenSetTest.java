@@ -0,0 +1,97 @@
+package searchengine.services.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlSeenSetTest {
+
+    private static final String SITE = "https://example.com";
+    private static final int URLS = 200_000;
+
+    @Test
+    void addReportsOnlyTheFirstTime() {
+        UrlSeenSet set = new UrlSeenSet();
+
+        assertTrue(set.add(SITE, "/a"));
+        assertFalse(set.add(SITE, "/a"));
+        assertTrue(set.add("https://example.org", "/a"));
+        assertTrue(set.contains(SITE, "/a"));
+        assertFalse(set.contains(SITE, "/b"));
+    }
+
+    @Test
+    void keepsManyUrlsAcrossResizes() {
+        UrlSeenSet set = new UrlSeenSet();
+        for (int i = 0; i < URLS; i++) {
+            assertTrue(set.add(SITE, "/page/" + i));
+        }
+        for (int i = 0; i < URLS; i++) {
+            assertTrue(set.contains(SITE, "/page/" + i));
+            assertFalse(set.contains(SITE, "/other/" + i));
+            assertFalse(set.add(SITE, "/page/" + i));
+        }
+    }
+
+    @Test
+    void writtenSetIsReadBack() throws IOException {
+        UrlSeenSet set = new UrlSeenSet();
+        for (int i = 0; i < 10_000; i++) {
+            set.add(SITE, "/page/" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        set.write(new DataOutputStream(bytes));
+
+        UrlSeenSet copy = new UrlSeenSet();
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(copy.add(SITE, "/page/" + i));
+        }
+        assertTrue(copy.add(SITE, "/page/10000"));
+    }
+
+    @Test
+    void clearForgetsAllUrls() {
+        UrlSeenSet set = new UrlSeenSet();
+        set.add(SITE, "/a");
+        set.clear();
+
+        assertFalse(set.contains(SITE, "/a"));
+        assertTrue(set.add(SITE, "/a"));
+    }
+
+    @Test
+    void concurrentAddsReportEveryUrlOnce() throws InterruptedException {
+        UrlSeenSet set = new UrlSeenSet();
+        AtomicInteger added = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    if (set.add(SITE, "/page/" + i)) {
+                        added.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(50_000, added.get());
+    }
+}
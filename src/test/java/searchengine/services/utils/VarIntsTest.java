@@ -0,0 +1,45 @@
+package searchengine.services.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class VarIntsTest {
+
+    @Test
+    void valuesRoundTripAtEveryLength() {
+        int[] values = {0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152,
+                268_435_455, 268_435_456, Integer.MAX_VALUE, -1};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int value : values) {
+            VarInts.write(out, value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+
+        for (int value : values) {
+            assertEquals(value, VarInts.read(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void smallValuesTakeOneByte() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VarInts.write(out, 127);
+
+        assertArrayEquals(new byte[]{127}, out.toByteArray());
+    }
+
+    @Test
+    void deltasRoundTrip() {
+        int[] values = {0, 3, 3, 200, 70_000, 70_001};
+
+        assertArrayEquals(values, VarInts.decodeDeltas(VarInts.encodeDeltas(values)));
+        assertArrayEquals(new int[0], VarInts.decodeDeltas(VarInts.encodeDeltas(new int[0])));
+    }
+}